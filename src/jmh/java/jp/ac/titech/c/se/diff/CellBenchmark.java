@@ -0,0 +1,50 @@
+package jp.ac.titech.c.se.diff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the full-matrix engines on interned lines, whose cost grows with the number of cells.
+ * The score divided by size * size is the time per cell; 'vector' runs scalar code unless the JVM has the incubator module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CellBenchmark {
+    @Param({"dp", "vector", "bitlcs"})
+    App.DifferencerType engine;
+
+    @Param({"1000", "4000"})
+    int size;
+
+    @Param({"0.05", "0.3"})
+    double editDensity;
+
+    int[] source, target;
+    TokenDifferencer differencer;
+
+    @Setup
+    public void setup() {
+        final Inputs inputs = new Inputs(size, editDensity, 0.3, 42);
+        final LineInterner<String> interner = new LineInterner<>();
+        source = interner.intern(inputs.source);
+        target = interner.intern(inputs.target);
+        final App app = new App();
+        app.differencerType = engine;
+        differencer = app.getTokenDifferencer();
+    }
+
+    @Benchmark
+    public List<Chunk> computeDiff() {
+        return differencer.computeDiff(source, target);
+    }
+}
@@ -0,0 +1,61 @@
+package jp.ac.titech.c.se.diff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of the correction differencers: building one for an input,
+ * and computing a diff under a set of corrections, which the search does once per node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CorrectionDifferencerBenchmark {
+    @Param({"dp", "astar", "fastastar", "myers", "histogram"})
+    App.DifferencerType engine;
+
+    @Param({"100", "1000"})
+    int size;
+
+    @Param({"0.05", "0.3"})
+    double editDensity;
+
+    @Param({"0.0", "0.3"})
+    double duplicateRatio;
+
+    @Param({"0", "1", "8"})
+    int corrections;
+
+    int[] source, target;
+    CorrectionDifferencer<String> differencer;
+    CorrectionSet correction;
+
+    @Setup
+    public void setup() {
+        final Inputs inputs = new Inputs(size, editDensity, duplicateRatio, 42);
+        final LineInterner<String> interner = new LineInterner<>();
+        source = interner.intern(inputs.source);
+        target = interner.intern(inputs.target);
+        differencer = DiffSearch.getCorrectionDifferencer(engine, source, target);
+        correction = CorrectionSet.of(Inputs.corrections(differencer, corrections, 42));
+    }
+
+    @Benchmark
+    public CorrectionDifferencer<String> construct() {
+        return DiffSearch.getCorrectionDifferencer(engine, source, target);
+    }
+
+    @Benchmark
+    public List<Chunk> computeDiff() {
+        return differencer.computeDiff(correction);
+    }
+}
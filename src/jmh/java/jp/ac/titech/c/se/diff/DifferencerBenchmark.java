@@ -0,0 +1,90 @@
+package jp.ac.titech.c.se.diff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of a whole diff with each engine, on generated inputs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DifferencerBenchmark {
+    @Param({"dp", "hirschberg", "bitlcs", "vector", "astar", "fastastar", "snakeastar", "myers", "histogram"})
+    App.DifferencerType engine;
+
+    @Param({"100", "1000"})
+    int size;
+
+    @Param({"0.05", "0.3"})
+    double editDensity;
+
+    @Param({"0.0", "0.3"})
+    double duplicateRatio;
+
+    @Param({"false", "true"})
+    boolean anchor;
+
+    Differencer<String> differencer;
+    Inputs inputs;
+
+    @Setup
+    public void setup() {
+        final App app = new App();
+        app.differencerType = engine;
+        app.anchor = anchor;
+        differencer = app.getDifferencer();
+        inputs = new Inputs(size, editDensity, duplicateRatio, 42);
+    }
+
+    @Benchmark
+    public List<Chunk> computeDiff() {
+        return differencer.computeDiff(inputs.source, inputs.target);
+    }
+
+    /**
+     * The A* engines alone on near-identical inputs, where they do well: the Hipster search against
+     * {@link EditGraphSearch}, with and without snakes. Run with: ./gradlew jmh -PjmhIncludes=DifferencerBenchmark.AStar
+     */
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public static class AStar {
+        @Param({"astar", "fastastar", "snakeastar"})
+        App.DifferencerType engine;
+
+        @Param({"1000", "3000"})
+        int size;
+
+        @Param({"0.02", "0.1"})
+        double editDensity;
+
+        int[] source, target;
+        TokenDifferencer differencer;
+
+        @Setup
+        public void setup() {
+            final Inputs inputs = new Inputs(size, editDensity, 0.3, 42);
+            final LineInterner<String> interner = new LineInterner<>();
+            source = interner.intern(inputs.source);
+            target = interner.intern(inputs.target);
+            final App app = new App();
+            app.differencerType = engine;
+            differencer = app.getTokenDifferencer();
+        }
+
+        @Benchmark
+        public List<Chunk> computeDiff() {
+            return differencer.computeDiff(source, target);
+        }
+    }
+}
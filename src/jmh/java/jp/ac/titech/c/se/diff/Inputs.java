@@ -0,0 +1,67 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates benchmark inputs: a source file and a target file made from it by random edits.
+ */
+final class Inputs {
+    // lines such as braces and blank lines, which repeat throughout real source files
+    static final List<String> COMMON_LINES = List.of("", "}", "{", "    }", "        }", "return;", "break;", "else {");
+
+    final List<String> source;
+    final List<String> target;
+
+    /**
+     * @param size the number of source lines
+     * @param editDensity the probability that a source line is deleted, replaced, or followed by an inserted line
+     * @param duplicateRatio the probability that a generated line is one of {@link #COMMON_LINES}
+     */
+    Inputs(final int size, final double editDensity, final double duplicateRatio, final long seed) {
+        final Random random = new Random(seed);
+        source = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            source.add(line(random, duplicateRatio));
+        }
+        target = new ArrayList<>(size);
+        for (final String line : source) {
+            if (random.nextDouble() >= editDensity) {
+                target.add(line);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0 -> {} // delete
+                case 1 -> target.add(line(random, duplicateRatio));
+                default -> {
+                    target.add(line);
+                    target.add(line(random, duplicateRatio));
+                }
+            }
+        }
+    }
+
+    private static String line(final Random random, final double duplicateRatio) {
+        if (random.nextDouble() < duplicateRatio) {
+            return COMMON_LINES.get(random.nextInt(COMMON_LINES.size()));
+        }
+        return "line " + Long.toHexString(random.nextLong());
+    }
+
+    /**
+     * Picks corrections the way the search does: edges of the current path, one at a time.
+     */
+    static List<Chunk> corrections(final CorrectionDifferencer<String> differencer, final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<Chunk> correction = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final List<Chunk> path = differencer.computeDiff(correction);
+            if (path.isEmpty()) {
+                break;
+            }
+            correction.add(path.get(random.nextInt(path.size())));
+        }
+        return correction;
+    }
+}
@@ -13,23 +13,31 @@ import es.usc.citius.hipster.model.problem.SearchProblem;
 
 import java.util.*;
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
-public final class AStarDifferencer<T> implements Differencer<T> {
+public final class AStarDifferencer<T> implements Differencer<T>, TokenDifferencer {
 
     public static final int LINE_WEIGHT = 10000;
 
     private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
 
     public AStarDifferencer() {
-        this(Object::equals);
+        this(null, null);
     }
 
-    public AStarDifferencer(final BiPredicate<T, T> equality) {
+    public AStarDifferencer(final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
         this.equality = equality;
+        this.hash = hash;
     }
 
     public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
-        final State goal = new State(source.size(), target.size());
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        final State goal = new State(source.length, target.length);
         final List<Chunk> result = new ArrayList<>();
         for (final WeightedNode<Chunk.Type, State, Integer> node : Hipster.createAStar(new Search(source, target).createProblem()).search(goal).getGoalNode().path()) {
             if (node.action() != null) {
@@ -45,14 +53,14 @@ public final class AStarDifferencer<T> implements Differencer<T> {
 
     record State(int s, int t) {}
 
-    class Search implements
+    static class Search implements
             ActionFunction<Chunk.Type, State>,
             ActionStateTransitionFunction<Chunk.Type, State>,
             CostFunction<Chunk.Type, State, Integer>,
             HeuristicFunction<State, Integer> {
-        final List<T> source, target;
+        final int[] source, target;
 
-        public Search(final List<T> source, final List<T> target) {
+        public Search(final int[] source, final int[] target) {
             this.source = source;
             this.target = target;
         }
@@ -75,15 +83,15 @@ public final class AStarDifferencer<T> implements Differencer<T> {
 
         @Override
         public List<Chunk.Type> actionsFor(final State state) {
-            if (state.s < source.size() && state.t < target.size()) {
-                if (equality.test(source.get(state.s), target.get(state.t))) {
+            if (state.s < source.length && state.t < target.length) {
+                if (source[state.s] == target[state.t]) {
                     return OP_ALL;
                 } else {
                     return OP_NEQL;
                 }
-            } else if (state.s < source.size()) {
+            } else if (state.s < source.length) {
                 return OP_DEL;
-            } else if (state.t < target.size()) {
+            } else if (state.t < target.length) {
                 return OP_INS;
             } else {
                 return Collections.emptyList();
@@ -116,7 +124,7 @@ public final class AStarDifferencer<T> implements Differencer<T> {
 
         @Override
         public Integer estimate(final State state) {
-            return Math.max(source.size() - state.s, target.size() - state.t) * LINE_WEIGHT;
+            return Math.max(source.length - state.s, target.length - state.t) * LINE_WEIGHT;
         }
     }
 }
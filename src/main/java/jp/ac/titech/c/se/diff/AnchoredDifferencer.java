@@ -0,0 +1,175 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Splits the input at anchors, and runs the given engine on the gaps between them concurrently.
+ * The anchors are the longest increasing sequence of the line pairs that occur exactly once in each file,
+ * as in patience diff. They are always matched, so the result is minimal only when the engine's diff
+ * would have matched them too; in exchange, the engine sees the gaps instead of the whole O(N * M) problem.
+ * The result has one chunk per line.
+ */
+public final class AnchoredDifferencer<T> implements Differencer<T>, TokenDifferencer {
+    // gaps smaller than this (source lines times target lines) are diffed on the calling thread
+    static final long PARALLEL_THRESHOLD = 1L << 16;
+
+    private final TokenDifferencer engine;
+    private final ForkJoinPool pool;
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public AnchoredDifferencer(final TokenDifferencer engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+
+    public AnchoredDifferencer(final TokenDifferencer engine, final ForkJoinPool pool) {
+        this(engine, pool, null, null);
+    }
+
+    public AnchoredDifferencer(final TokenDifferencer engine, final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
+        this(engine, ForkJoinPool.commonPool(), equality, hash);
+    }
+
+    public AnchoredDifferencer(final TokenDifferencer engine, final ForkJoinPool pool,
+                               final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
+        this.engine = engine;
+        this.pool = pool;
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        final int[] anchors = anchors(source, target);
+        // gap k lies between anchor k - 1 and anchor k; the last one runs to the ends
+        final int gaps = anchors.length / 2 + 1;
+        final List<Future<List<Chunk>>> futures = new ArrayList<>(gaps);
+        final List<Callable<List<Chunk>>> tasks = new ArrayList<>();
+        for (int k = 0; k < gaps; k++) {
+            final int s0 = k == 0 ? 0 : anchors[2 * k - 2] + 1;
+            final int t0 = k == 0 ? 0 : anchors[2 * k - 1] + 1;
+            final int s1 = k == gaps - 1 ? source.length : anchors[2 * k];
+            final int t1 = k == gaps - 1 ? target.length : anchors[2 * k + 1];
+            final Callable<List<Chunk>> task = () -> diffGap(source, target, s0, s1, t0, t1);
+            if ((long) (s1 - s0) * (t1 - t0) < PARALLEL_THRESHOLD) {
+                futures.add(null);
+            } else {
+                futures.add(pool.submit(task));
+            }
+            tasks.add(task);
+        }
+
+        final List<Chunk> result = new ArrayList<>(source.length + target.length);
+        for (int k = 0; k < gaps; k++) {
+            final Future<List<Chunk>> future = futures.get(k);
+            try {
+                result.addAll(future == null ? tasks.get(k).call() : future.get());
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (k < gaps - 1) {
+                final int s = anchors[2 * k];
+                final int t = anchors[2 * k + 1];
+                result.add(new Chunk(Chunk.Type.EQL, s, s + 1, t, t + 1));
+            }
+        }
+        return result;
+    }
+
+    // diffs source [s0, s1) against target [t0, t1), and shifts the per-line result back into place
+    private List<Chunk> diffGap(final int[] source, final int[] target, final int s0, final int s1, final int t0, final int t1) {
+        final List<Chunk> result = new ArrayList<>((s1 - s0) + (t1 - t0));
+        if (s0 == s1 || t0 == t1) {
+            for (int s = s0; s < s1; s++) {
+                result.add(new Chunk(Chunk.Type.DEL, s, s + 1, t0, t0));
+            }
+            for (int t = t0; t < t1; t++) {
+                result.add(new Chunk(Chunk.Type.INS, s1, s1, t, t + 1));
+            }
+            return result;
+        }
+        final int[] s = Arrays.copyOfRange(source, s0, s1);
+        final int[] t = Arrays.copyOfRange(target, t0, t1);
+        for (final Chunk c : Chunkase.complete(engine.computeDiff(s, t), s.length, t.length)) {
+            result.add(new Chunk(c.type, c.sourceStart + s0, c.sourceEnd + s0, c.targetStart + t0, c.targetEnd + t0));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the anchors as pairs of source and target positions, flattened and increasing in both.
+     */
+    static int[] anchors(final int[] source, final int[] target) {
+        int ids = 0;
+        for (final int id : source) {
+            ids = Math.max(ids, id + 1);
+        }
+        // occurrences in the source, and the position in the target (-1: none, -2: several)
+        final int[] sourceCounts = new int[ids];
+        final int[] targetPositions = new int[ids];
+        Arrays.fill(targetPositions, -1);
+        for (final int id : source) {
+            sourceCounts[id]++;
+        }
+        for (int j = 0; j < target.length; j++) {
+            final int id = target[j];
+            if (id < ids && sourceCounts[id] == 1) {
+                targetPositions[id] = targetPositions[id] == -1 ? j : -2;
+            }
+        }
+
+        // the unique pairs in source order; the anchors are the longest increasing run of their target positions
+        final int[] pairSources = new int[Math.min(source.length, target.length)];
+        final int[] pairTargets = new int[pairSources.length];
+        int pairs = 0;
+        for (int i = 0; i < source.length; i++) {
+            final int id = source[i];
+            if (sourceCounts[id] == 1 && targetPositions[id] >= 0) {
+                pairSources[pairs] = i;
+                pairTargets[pairs] = targetPositions[id];
+                pairs++;
+            }
+        }
+
+        // patience sorting: tails[l] is the pair ending the best increasing sequence of length l + 1 found so far
+        final int[] tails = new int[pairs];
+        final int[] previous = new int[pairs];
+        int length = 0;
+        for (int p = 0; p < pairs; p++) {
+            int lo = 0, hi = length;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (pairTargets[tails[mid]] < pairTargets[p]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[p] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = p;
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        final int[] result = new int[2 * length];
+        for (int k = length - 1, p = length > 0 ? tails[length - 1] : -1; k >= 0; k--, p = previous[p]) {
+            result[2 * k] = pairSources[p];
+            result[2 * k + 1] = pairTargets[p];
+        }
+        return result;
+    }
+}
@@ -1,11 +1,19 @@
 package jp.ac.titech.c.se.diff;
 
 import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -16,7 +24,7 @@ import jp.ac.titech.c.se.diff.DiffSearch.GoalPredicate;
 import java.util.ArrayList;
 
 public final class App implements Callable<Integer> {
-    enum DifferencerType { dp, astar, myers, histogram }
+    enum DifferencerType { dp, hirschberg, bitlcs, vector, astar, fastastar, snakeastar, myers, histogram }
 
     @Option(names = {"-d", "--differencer"}, paramLabel = "<t>",
             description = "Specify differencer: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
@@ -37,12 +45,47 @@ public final class App implements Callable<Integer> {
     @Option(names = {"--log"}, description = "print search step")
     boolean logging;
 
-    @Parameters(index = "0", description = "Source file")
+    @Option(names = {"-u"}, description = "output in the unified format with 3 lines of context")
+    boolean unifiedFormat;
+
+    @Option(names = {"-U", "--unified"}, paramLabel = "<n>", description = "output in the unified format with <n> lines of context")
+    Integer contextLines;
+
+    @Option(names = {"--max-nodes"}, paramLabel = "<n>", description = "stop the search after expanding <n> nodes")
+    long maxNodes;
+
+    @Option(names = {"--time-limit"}, paramLabel = "<ms>", description = "stop the search after <ms> milliseconds")
+    long timeLimit;
+
+    @Option(names = {"--weight"}, paramLabel = "<w>", description = "weight of the search heuristic; above 1 finds a result faster but maybe not the smallest (default: ${DEFAULT-VALUE})")
+    double weight = 1.0;
+
+    @Option(names = {"--beam"}, paramLabel = "<k>", description = "run beam search keeping <k> states per depth")
+    int beamWidth;
+
+    @Option(names = {"--stats"}, description = "print timings and search counters as JSON to stderr")
+    boolean stats;
+
+    @Option(names = {"--trim"}, description = "strip common leading and trailing lines before diffing")
+    boolean trim;
+
+    @Option(names = {"--anchor"}, description = "match the lines unique to both files first, and diff the gaps between them in parallel")
+    boolean anchor;
+
+    @Option(names = {"-j", "--threads"}, paramLabel = "<n>",
+            description = "number of threads computing search successors (default: ${DEFAULT-VALUE})")
+    int threads = 1;
+
+    // optional, so that subcommands can be run without them
+    @Parameters(index = "0", arity = "0..1", description = "Source file")
     Path sourceFile;
 
-    @Parameters(index = "1", description = "Target file")
+    @Parameters(index = "1", arity = "0..1", description = "Target file")
     Path targetFile;
 
+    @Spec
+    CommandSpec spec;
+
     @SuppressWarnings("unused")
     @Option(names = "--help", description = "show this help message and exit", usageHelp = true)
     boolean helpRequested;
@@ -53,31 +96,55 @@ public final class App implements Callable<Integer> {
 
     @Override
     public Integer call() throws IOException {
-        final List<String> source = Files.readAllLines(sourceFile);
-        final List<String> target = Files.readAllLines(targetFile);
-        List<Chunk> diff = getDifferencer().computeDiff(source, target);
-        diff = Chunkase.degrade(diff, source.size(), target.size());
+        if (sourceFile == null || targetFile == null) {
+            throw new ParameterException(spec.commandLine(), "Missing required parameters: <sourceFile> <targetFile>");
+        }
+        return call(MappedText.read(sourceFile), MappedText.read(targetFile));
+    }
+
+    private int call(final MappedText source, final MappedText target) {
+        final Metrics metrics = new Metrics();
+        final int[] sourceIds;
+        final int[] targetIds;
+        try (Metrics.Timer timer = metrics.phase("read")) {
+            final MappedText.Interner interner = new MappedText.Interner();
+            sourceIds = interner.intern(source);
+            targetIds = interner.intern(target);
+        }
+        List<Chunk> diff;
+        try (Metrics.Timer timer = metrics.phase("diff")) {
+            diff = getTokenDifferencer().computeDiff(sourceIds, targetIds);
+        }
         //List<Chunk> diff = getCorrectDiff(source, target);
         if(search){
-            DiffSearch ds = new DiffSearch(differencerType, source, target, detail, logging);
-            ds.search();
+            DiffSearch ds = new DiffSearch(differencerType, source, target, sourceIds, targetIds, detail, logging, trim, threads);
+            ds.search(getBudget());
+            if (stats) {
+                System.err.println(ds.metrics.toJson());
+            }
         }else if(manual){
-            diff = getCorrectDiff(source, target);
-            List<Chunk> hisDiff = new JGitDifferencer.Histogram<String>().computeDiff(source, target);
-            hisDiff = Chunkase.degrade(hisDiff, source.size(), target.size());
+            diff = getCorrectDiff(sourceIds, targetIds);
+            EditScript hisDiff = EditScript.of(new JGitDifferencer.Histogram<String>().computeDiff(sourceIds, targetIds));
             //show(diff, source, target);
             //show(hisDiff, source, target);
-            DiffSearch ds = new DiffSearch(differencerType, source, target, detail, logging);
+            DiffSearch ds = new DiffSearch(differencerType, source, target, sourceIds, targetIds, detail, logging, trim, threads);
             GoalPredicate<WeightedNode<Chunk, ModificationState, Integer>> gp = ds.new GoalPredicate<>(hisDiff);
             WeightedNode<Chunk,ModificationState,Integer> prevNode = null;
-            System.out.println(gp.apply(new WeightedNode<Chunk,ModificationState,Integer>(prevNode,new ModificationState(diff), null,null,null,null)));
+            System.out.println(gp.apply(new WeightedNode<Chunk,ModificationState,Integer>(prevNode,new ModificationState(EditScript.of(diff)), null,null,null,null)));
         }else{
-            show(diff, source, target);
+            try (Metrics.Timer timer = metrics.phase("output")) {
+                final PrintWriter out = openOutput();
+                render(out, sourceFile.toString(), targetFile.toString(), diff, source, target);
+                out.flush();
+            }
+            if (stats) {
+                System.err.println(metrics.toJson());
+            }
         }
         return 0;
     }
 
-    private List<Chunk> getCorrectDiff(final List<String> source, final List<String> target) {
+    private List<Chunk> getCorrectDiff(final int[] source, final int[] target) {
         List<Chunk> diff;
         CorrectionDifferencer<String> corrctionDifferencer = new CorrectionAstarDifferencer<>(source, target);
         List<Chunk> correction = new ArrayList<>();
@@ -87,54 +154,82 @@ public final class App implements Callable<Integer> {
         return diff;
     }
 
-    public void show(List<Chunk> diff, List<String> source, List<String> target) {
-        for (Chunk c : diff) {
-            switch (c.type) {
-                case DEL:
-                    if (showLocation) {
-                        System.out.printf("@@ -%d,%d +%d @@\n", c.sourceStart, c.sourceEnd - 1, c.targetStart);
-                    }
-                    for (int i = c.sourceStart; i < c.sourceEnd; i++) {
-                        System.out.println("- " + source.get(i));
-                    }
-                    break;
-                case INS:
+    // the output is encoded and flushed in large blocks rather than line by line as with System.out
+    static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    static PrintWriter openOutput() {
+        final Charset charset = Charset.forName(System.getProperty("stdout.encoding", Charset.defaultCharset().name()));
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), charset), OUTPUT_BUFFER_SIZE));
+    }
+
+    /**
+     * Prints a diff as computed by a differencer, in the unified format if requested.
+     */
+    public void render(PrintWriter out, String sourceName, String targetName, List<Chunk> diff, MappedText source, MappedText target) {
+        final int context = contextLines != null ? contextLines : unifiedFormat ? 3 : -1;
+        if (context >= 0) {
+            new UnifiedDiffWriter(out, context).write(sourceName, targetName, diff, source, target,
+                    source.endsWithNewline(), target.endsWithNewline());
+        } else {
+            show(out, EditScript.of(diff), source, target);
+        }
+    }
+
+    public void show(PrintWriter out, EditScript diff, List<String> source, List<String> target) {
+        diff.forEachLine((type, s, t) -> {
+            switch (type) {
+                case DEL -> {
                     if (showLocation) {
-                        System.out.printf("@@ -%d +%d,%d @@\n", c.sourceStart, c.targetStart, c.targetEnd - 1);
-                    }
-                    for (int i = c.targetStart; i < c.targetEnd; i++) {
-                        System.out.println("+ " + target.get(i));
+                        out.printf("@@ -%d,%d +%d @@\n", s, s, t);
                     }
-                    break;
-                case MOD:
+                    out.println("- " + source.get(s));
+                }
+                case INS -> {
                     if (showLocation) {
-                        System.out.printf("@@ -%d,%d +%d,%d @@\n", c.sourceStart, c.sourceEnd - 1, c.targetStart, c.targetEnd - 1);
-                    }
-                    for (int i = c.sourceStart; i < c.sourceEnd; i++) {
-                        System.out.println("- " + source.get(i));
-                    }
-                    for (int i = c.targetStart; i < c.targetEnd; i++) {
-                        System.out.println("+ " + target.get(i));
+                        out.printf("@@ -%d +%d,%d @@\n", s, t, t);
                     }
-                    break;
-                case EQL:
+                    out.println("+ " + target.get(t));
+                }
+                case EQL -> {
                     if (showLocation) {
-                        System.out.printf("@@ -%d,%d +%d,%d @@\n", c.sourceStart, c.sourceEnd - 1, c.targetStart, c.targetEnd - 1);
+                        out.printf("@@ -%d,%d +%d,%d @@\n", s, s, t, t);
                     }
-                    for (int i = c.sourceStart; i < c.sourceEnd; i++) {
-                        System.out.println("  " + source.get(i));
-                    }
-                    break;
-                default:
-                    assert false;
+                    out.println("  " + source.get(s));
+                }
+                default -> throw new IllegalStateException();
             }
-        }
+        });
     }
 
     public Differencer<String> getDifferencer() {
+        Differencer<String> differencer = getEngine();
+        if (anchor) {
+            differencer = new AnchoredDifferencer<>((TokenDifferencer) differencer);
+        }
+        return trim ? new TrimmingDifferencer<>((TokenDifferencer) differencer) : differencer;
+    }
+
+    // null unless one of the budget options is given, which keeps the unbounded Hipster search
+    private BudgetedSearch.Budget getBudget() {
+        if (maxNodes == 0 && timeLimit == 0 && weight == 1.0 && beamWidth == 0) {
+            return null;
+        }
+        return new BudgetedSearch.Budget(maxNodes, timeLimit, weight, beamWidth);
+    }
+
+    public TokenDifferencer getTokenDifferencer() {
+        return (TokenDifferencer) getDifferencer();
+    }
+
+    private Differencer<String> getEngine() {
         return switch (differencerType) {
             case dp -> new DynamicProgrammingDifferencer<>();
+            case hirschberg -> new HirschbergDifferencer<>();
+            case bitlcs -> new BitParallelDifferencer<>();
+            case vector -> new VectorDifferencer<>();
             case astar -> new AStarDifferencer<>();
+            case fastastar -> new FastAStarDifferencer<>();
+            case snakeastar -> new SnakeAStarDifferencer<>();
             case myers -> new JGitDifferencer.Myers<>();
             case histogram -> new JGitDifferencer.Histogram<>();
         };
@@ -145,6 +240,8 @@ public final class App implements Callable<Integer> {
         final App app = new App();
         final CommandLine cmdline = new CommandLine(app);
         cmdline.setExpandAtFiles(false);
+        cmdline.addSubcommand("batch", new BatchCommand());
+        cmdline.addSubcommand("history", new HistoryCommand());
         final int status = cmdline.execute(args);
         System.exit(status);
     }
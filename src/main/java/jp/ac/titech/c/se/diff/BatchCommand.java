@@ -0,0 +1,120 @@
+package jp.ac.titech.c.se.diff;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+/**
+ * Diffs many file pairs in a single JVM.
+ * The pairs are read from a manifest, or matched by relative path under two directories.
+ * They are diffed on a bounded pool with the differencer chosen on the main command,
+ * and the results are printed in input order, each headed by the pair and its timing.
+ */
+@Command(name = "batch", description = "Diff the file pairs of a manifest or of two directory trees")
+public final class BatchCommand implements Callable<Integer> {
+    @ParentCommand
+    App app;
+
+    @Spec
+    CommandSpec spec;
+
+    @Option(names = {"-m", "--manifest"}, paramLabel = "<file>",
+            description = "file listing one pair per line, source and target separated by a tab")
+    Path manifest;
+
+    // not -j, which sets the search threads of each diff on the main command
+    @Option(names = {"-w", "--workers"}, paramLabel = "<n>",
+            description = "number of files diffed at once (default: ${DEFAULT-VALUE})")
+    int workers = Runtime.getRuntime().availableProcessors();
+
+    @Parameters(arity = "0..2", paramLabel = "<root>",
+            description = "source and target directories; files present in only one of them are skipped")
+    List<Path> roots = new ArrayList<>();
+
+    record Pair(Path source, Path target) {}
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        if (app.threads != 1) {
+            throw new ParameterException(spec.commandLine(), "-j only applies to --search; use --workers to diff files at once");
+        }
+        final List<Pair> pairs = readPairs();
+        final PrintWriter out = App.openOutput();
+        final long start = System.nanoTime();
+        final int failures;
+        try (final OrderedPool pool = new OrderedPool(workers, out)) {
+            for (final Pair pair : pairs) {
+                pool.submit(() -> run(pair));
+            }
+            failures = pool.finish();
+        }
+        System.err.printf("%d pairs, %d failed, %.1f ms%n", pairs.size(), failures, (System.nanoTime() - start) / 1e6);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private List<Pair> readPairs() throws IOException {
+        if (manifest != null && roots.isEmpty()) {
+            final List<Pair> pairs = new ArrayList<>();
+            for (final String line : Files.readAllLines(manifest)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                final String[] fields = line.split("\t");
+                if (fields.length != 2) {
+                    throw new ParameterException(spec.commandLine(), "Malformed manifest line: " + line);
+                }
+                pairs.add(new Pair(Path.of(fields[0]), Path.of(fields[1])));
+            }
+            return pairs;
+        }
+        if (manifest == null && roots.size() == 2) {
+            final Path sourceRoot = roots.get(0);
+            final Path targetRoot = roots.get(1);
+            try (final Stream<Path> files = Files.walk(sourceRoot)) {
+                return files.filter(Files::isRegularFile)
+                        .sorted()
+                        .map(p -> new Pair(p, targetRoot.resolve(sourceRoot.relativize(p))))
+                        .filter(p -> Files.isRegularFile(p.target))
+                        .toList();
+            }
+        }
+        throw new ParameterException(spec.commandLine(), "Specify either --manifest or two directories");
+    }
+
+    private OrderedPool.Result run(final Pair pair) {
+        final StringWriter buffer = new StringWriter();
+        final PrintWriter out = new PrintWriter(buffer);
+        try {
+            // read onto the heap rather than mapped, as mappings of many files would only be released by the collector
+            final MappedText source = new MappedText(ByteBuffer.wrap(Files.readAllBytes(pair.source)));
+            final MappedText target = new MappedText(ByteBuffer.wrap(Files.readAllBytes(pair.target)));
+            final MappedText.Interner interner = new MappedText.Interner();
+            final int[] sourceIds = interner.intern(source);
+            final int[] targetIds = interner.intern(target);
+            final long start = System.nanoTime();
+            final List<Chunk> diff = app.getTokenDifferencer().computeDiff(sourceIds, targetIds);
+            final long elapsed = System.nanoTime() - start;
+            out.printf("### %s %s %.3f ms%n", pair.source, pair.target, elapsed / 1e6);
+            app.render(out, pair.source.toString(), pair.target.toString(), diff, source, target);
+            out.flush();
+            return new OrderedPool.Result(buffer.toString(), false);
+        } catch (final IOException | RuntimeException e) {
+            return new OrderedPool.Result(String.format("### %s %s failed: %s%n", pair.source, pair.target, e), true);
+        }
+    }
+}
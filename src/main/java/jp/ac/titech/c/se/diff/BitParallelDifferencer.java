@@ -0,0 +1,184 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * An LCS differencer that processes 64 target lines per word (Hyyrö's bit-vector algorithm).
+ * Under the cost model of {@link DynamicProgrammingDifferencer}, a mismatched diagonal never pays off,
+ * so its costs are D(i, j) = i + j - 2 L(i, j) with L the LCS length of the prefixes.
+ * The traceback applies the same priorities (INS, DEL, EQL) to L, and yields exactly the same chunks.
+ * <p>
+ * Row i is kept as a bit vector V_i whose bit j is set when L(i, j + 1) = L(i, j).
+ */
+public final class BitParallelDifferencer<T> implements Differencer<T>, TokenDifferencer {
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public BitParallelDifferencer() {
+        this(null, null);
+    }
+
+    public BitParallelDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash) {
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        final Matcher matcher = new Matcher(target);
+        final int words = matcher.words;
+        final long[] rows = new long[Math.multiplyExact(source.length + 1, words)];
+        matcher.fillOnes(rows, 0);
+        final long[] match = new long[words];
+        for (int i = 0; i < source.length; i++) {
+            System.arraycopy(rows, i * words, rows, (i + 1) * words, words);
+            matcher.advance(source[i], rows, (i + 1) * words, match);
+        }
+        return Traceback.findPath(source.length + 1, target.length + 1, new Trace(rows, words, target.length), 0, 0);
+    }
+
+    /**
+     * Returns the length of the longest common subsequence, keeping only one row: a fast path for similarity
+     * scores, which need the length but not the path, in O(N * M / 64) time and O(M / 64) memory.
+     */
+    public static int lcsLength(final int[] source, final int[] target) {
+        final Matcher matcher = new Matcher(target);
+        final long[] row = new long[matcher.words];
+        matcher.fillOnes(row, 0);
+        final long[] match = new long[matcher.words];
+        for (final int id : source) {
+            matcher.advance(id, row, 0, match);
+        }
+        return target.length - prefixCount(row, 0, target.length);
+    }
+
+    // the number of set bits among the first n bits of the row at the offset
+    static int prefixCount(final long[] rows, final int offset, final int n) {
+        int count = 0;
+        final int full = n >>> 6;
+        for (int w = 0; w < full; w++) {
+            count += Long.bitCount(rows[offset + w]);
+        }
+        if ((n & 63) != 0) {
+            count += Long.bitCount(rows[offset + full] & ((1L << n) - 1));
+        }
+        return count;
+    }
+
+    /**
+     * The positions of each line id in the target. Frequent ids get a dense bit mask;
+     * the others are matched through their position lists, so the masks take O(target) words in total.
+     */
+    static final class Matcher {
+        final int length;
+        final int words;
+        // positions of id k: positions[offsets[k] .. offsets[k + 1])
+        final int[] offsets;
+        final int[] positions;
+        final long[][] masks;
+
+        Matcher(final int[] target) {
+            length = target.length;
+            words = Math.max((target.length + 63) >>> 6, 1);
+            int ids = 0;
+            for (final int id : target) {
+                ids = Math.max(ids, id + 1);
+            }
+            offsets = new int[ids + 1];
+            for (final int id : target) {
+                offsets[id + 1]++;
+            }
+            for (int k = 0; k < ids; k++) {
+                offsets[k + 1] += offsets[k];
+            }
+            positions = new int[target.length];
+            final int[] next = offsets.clone();
+            for (int j = 0; j < target.length; j++) {
+                positions[next[target[j]]++] = j;
+            }
+            masks = new long[ids][];
+            for (int k = 0; k < ids; k++) {
+                if (offsets[k + 1] - offsets[k] > words) {
+                    final long[] mask = new long[words];
+                    for (int p = offsets[k]; p < offsets[k + 1]; p++) {
+                        mask[positions[p] >>> 6] |= 1L << positions[p];
+                    }
+                    masks[k] = mask;
+                }
+            }
+        }
+
+        void fillOnes(final long[] rows, final int offset) {
+            for (int w = 0; w < words; w++) {
+                rows[offset + w] = -1L;
+            }
+        }
+
+        /**
+         * Turns the row at the offset from V_i into V_{i+1} for a source line with the given id.
+         * The match buffer must be all zero, and is left so.
+         */
+        void advance(final int id, final long[] rows, final int offset, final long[] match) {
+            if (id >= masks.length || offsets[id] == offsets[id + 1]) {
+                return;
+            }
+            final long[] mask = masks[id];
+            if (mask != null) {
+                for (int w = 0; w < words; w++) {
+                    match[w] = rows[offset + w] & mask[w];
+                }
+            } else {
+                for (int p = offsets[id]; p < offsets[id + 1]; p++) {
+                    final int j = positions[p];
+                    match[j >>> 6] |= rows[offset + (j >>> 6)] & (1L << j);
+                }
+            }
+            // V' = (V + U) | (V - U) with U = V & M, where V - U = V & ~U
+            long carry = 0;
+            for (int w = 0; w < words; w++) {
+                final long v = rows[offset + w];
+                final long u = match[w];
+                final long sum = v + u + carry;
+                carry = ((v & u) | ((v | u) & ~sum)) >>> 63;
+                rows[offset + w] = sum | (v & ~u);
+                match[w] = 0;
+            }
+        }
+    }
+
+    /**
+     * Chooses the traceback directions from the stored rows. It is called once per step along the path,
+     * from the last cell backwards, and keeps L of the current cell so that each row is counted only once.
+     */
+    static final class Trace implements IntBinaryOperator {
+        final long[] rows;
+        final int words;
+        int lcs;
+
+        Trace(final long[] rows, final int words, final int columns) {
+            this.rows = rows;
+            this.words = words;
+            final int last = rows.length / words - 1;
+            this.lcs = columns - prefixCount(rows, last * words, columns);
+        }
+
+        @Override
+        public int applyAsInt(final int i, final int j) {
+            if (i == 0 || (j > 0 && (rows[i * words + ((j - 1) >>> 6)] & (1L << (j - 1))) != 0)) {
+                return Traceback.FROM_HORIZONTAL;
+            }
+            if (j == 0 || j - prefixCount(rows, (i - 1) * words, j) == lcs) {
+                return Traceback.FROM_VERTICAL;
+            }
+            lcs--;
+            return Traceback.FROM_DIAGONAL;
+        }
+    }
+}
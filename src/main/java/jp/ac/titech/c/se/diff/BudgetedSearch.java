@@ -0,0 +1,124 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An anytime variant of the correction search, which stops when a node or time budget runs out
+ * and then returns the state closest to the target diff found so far.
+ * It runs weighted A* (f = g + weight * h; weight 1 is plain A*), or beam search when a beam width is given.
+ * States, successors and the heuristic come from {@link DiffSearch}, including its transposition table.
+ * The peak size of the frontier, after beam pruning, is recorded in the metrics of the problem.
+ */
+final class BudgetedSearch {
+    /**
+     * @param maxNodes the number of expansions allowed, or 0 for no limit
+     * @param timeLimitMillis the time allowed, or 0 for no limit
+     * @param weight the weight of the heuristic; above 1 trades optimality for speed
+     * @param beamWidth the number of states kept per depth, or 0 for best-first search
+     */
+    record Budget(long maxNodes, long timeLimitMillis, double weight, int beamWidth) {}
+
+    /**
+     * @param state the goal, or the state closest to the target diff if the budget ran out
+     * @param complete whether the state was taken as the goal. A state reaching the target diff is
+     *                 not complete when the budget ran out before it was expanded, as a state with
+     *                 fewer corrections might still have come first.
+     * @param remaining the number of chunks in only one of the path of the state and the target diff
+     */
+    record Result(ModificationState state, boolean complete, int remaining) {}
+
+    record Node(ModificationState state, int depth, double score, int remaining, long order) {}
+
+    // lower score first, then closer to the target, then earlier generated
+    static final Comparator<Node> ORDER = Comparator.comparingDouble(Node::score)
+            .thenComparingInt(Node::remaining)
+            .thenComparingLong(Node::order);
+
+    private final DiffSearch problem;
+    private final Budget budget;
+    private final long deadline;
+    private long order;
+    private Node best;
+
+    BudgetedSearch(final DiffSearch problem, final Budget budget) {
+        this.problem = problem;
+        this.budget = budget;
+        this.deadline = budget.timeLimitMillis > 0 ? System.nanoTime() + budget.timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+    }
+
+    Result run(final ModificationState initial) {
+        final Node root = node(initial, 0);
+        best = root;
+        if (problem.isGoal(initial)) {
+            return new Result(initial, true, 0);
+        }
+        final Node goal = budget.beamWidth > 0 ? beam(root) : bestFirst(root);
+        return goal != null ? new Result(goal.state, true, goal.remaining) : new Result(best.state, false, best.remaining);
+    }
+
+    private Node bestFirst(final Node root) {
+        final PriorityQueue<Node> open = new PriorityQueue<>(ORDER);
+        open.add(root);
+        long expanded = 0;
+        while (!open.isEmpty() && !exhausted(expanded)) {
+            final Node current = open.poll();
+            if (problem.isGoal(current.state)) {
+                return current;
+            }
+            expanded++;
+            for (final Chunk action : problem.actionsFor(current.state)) {
+                open.add(node(problem.apply(action, current.state), current.depth + 1));
+            }
+            recordOpen(open.size());
+        }
+        return null;
+    }
+
+    private Node beam(final Node root) {
+        List<Node> level = List.of(root);
+        long expanded = 0;
+        while (!level.isEmpty()) {
+            final List<Node> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                final Node current = level.get(i);
+                if (exhausted(expanded)) {
+                    return null;
+                }
+                expanded++;
+                for (final Chunk action : problem.actionsFor(current.state)) {
+                    final Node child = node(problem.apply(action, current.state), current.depth + 1);
+                    if (problem.isGoal(child.state)) {
+                        return child;
+                    }
+                    next.add(child);
+                    // the rest of this level and the next one, before pruning
+                    recordOpen(level.size() - i - 1 + next.size());
+                }
+            }
+            next.sort(ORDER);
+            level = next.size() > budget.beamWidth ? next.subList(0, budget.beamWidth) : next;
+        }
+        return null;
+    }
+
+    private Node node(final ModificationState state, final int depth) {
+        final int remaining = problem.remaining(state);
+        final double score = (double) depth * DiffSearch.STEPWEIGHT + budget.weight * problem.estimate(state);
+        final Node node = new Node(state, depth, score, remaining, order++);
+        if (best != null && (remaining < best.remaining || (remaining == best.remaining && depth < best.depth))) {
+            best = node;
+        }
+        return node;
+    }
+
+    private void recordOpen(final int size) {
+        problem.metrics.openPeak = Math.max(problem.metrics.openPeak, size);
+    }
+
+    private boolean exhausted(final long expanded) {
+        return (budget.maxNodes > 0 && expanded >= budget.maxNodes) || System.nanoTime() >= deadline;
+    }
+}
@@ -34,4 +34,15 @@ public class Chunkase {
         return products;
     }
 
+    // degrade, and also emit the EQL lines after the last chunk
+    static List<Chunk> complete(List<Chunk> substrate, int sourceSize, int targetSize){
+        List<Chunk> products = degrade(substrate, sourceSize, targetSize);
+        int sourceLine = products.isEmpty() ? 0 : products.get(products.size() - 1).sourceEnd;
+        int targetLine = products.isEmpty() ? 0 : products.get(products.size() - 1).targetEnd;
+        while(sourceLine < sourceSize && targetLine < targetSize){
+            products.add(new Chunk(Chunk.Type.EQL, sourceLine, ++sourceLine, targetLine, ++targetLine));
+        }
+        return products;
+    }
+
 }
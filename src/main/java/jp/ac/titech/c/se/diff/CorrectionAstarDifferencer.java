@@ -1,10 +1,10 @@
 package jp.ac.titech.c.se.diff;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 import es.usc.citius.hipster.algorithm.Hipster;
 import es.usc.citius.hipster.model.Transition;
@@ -19,61 +19,39 @@ import es.usc.citius.hipster.model.problem.SearchProblem;
 
 public class CorrectionAstarDifferencer<T> implements CorrectionDifferencer<T>{
     
-    private final BiPredicate<T, T> equality;
     public static final int LINE_WEIGHT = 10000;
 
-    final List<T> source, target;
+    final int[] source, target;
     final int CORRECTION_WEIGHT;
-    final int[][] editGraphDiag;
-    final int[][] verticalCorrection;
-    final int[][] horizontalCorrection;
-    final int[][] diagonalCorrection;
 
     public CorrectionAstarDifferencer(final List<T> source, final List<T> target) {
-        this(Object::equals, source, target);
+        this(new LineInterner<>(), source, target);
     }
 
-    public CorrectionAstarDifferencer(BiPredicate<T, T> equality, final List<T> source, final List<T> target) {
-        this.equality = equality;
+    public CorrectionAstarDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash, final List<T> source, final List<T> target) {
+        this(new LineInterner<>(equality, hash), source, target);
+    }
+
+    private CorrectionAstarDifferencer(final LineInterner<T> interner, final List<T> source, final List<T> target) {
+        this(interner.intern(source), interner.intern(target));
+    }
+
+    public CorrectionAstarDifferencer(final int[] source, final int[] target) {
         this.source = source;
         this.target = target;
-        CORRECTION_WEIGHT = source.size() + target.size() + 1;
-
-        editGraphDiag = new int[source.size()][target.size()];
-        verticalCorrection = new int[source.size()+1][target.size()+1];
-        horizontalCorrection = new int[source.size()+1][target.size()+1];
-        diagonalCorrection = new int[source.size()][target.size()];
-        initGraph();
+        CORRECTION_WEIGHT = source.length + target.length + 1;
     }
 
-    private void initGraph(){
-        for(int i = 0; i< source.size(); i++){
-            for(int j=0; j< target.size(); j++){
-                diagonalCorrection[i][j] = 0;
-                if(equality.test(source.get(i), target.get(j))){
-                    editGraphDiag[i][j] = 1;
-                }else{
-                    editGraphDiag[i][j] = CORRECTION_WEIGHT;
-                }
-            }
-        }
-        for(int i = 0; i<= source.size(); i++){
-            for(int j=0; j<= target.size(); j++){
-                verticalCorrection[i][j] = 0;
-                horizontalCorrection[i][j] = 0;
-            }
-        }
+    // the weight of the diagonal edge leaving (s, t), read from the interned lines rather than a stored grid
+    int diagonalWeight(final int s, final int t) {
+        return source[s] == target[t] ? 1 : CORRECTION_WEIGHT;
     }
 
     @Override
-    public List<Chunk> computeDiff(Collection<Chunk> correction){
-        for(Chunk c: correction){
-            setWeight(c);
-        }
-        //showEditGraph();
-        final State goal = new State(source.size(), target.size());
+    public List<Chunk> computeDiff(CorrectionSet correction){
+        final State goal = new State(source.length, target.length);
         final List<Chunk> result = new ArrayList<>();
-        for (final WeightedNode<Chunk.Type, State, Integer> node : Hipster.createAStar(new Search().createProblem()).search(goal).getGoalNode().path()) {
+        for (final WeightedNode<Chunk.Type, State, Integer> node : Hipster.createAStar(new Search(correction).createProblem()).search(goal).getGoalNode().path()) {
             if (node.action() != null) {
                 result.add(new Chunk(node.action(),
                         node.action() == Chunk.Type.INS ? node.state().s : node.state().s - 1,
@@ -82,43 +60,12 @@ public class CorrectionAstarDifferencer<T> implements CorrectionDifferencer<T>{
                         node.state().t));
             }
         }
-
-        for(Chunk c: correction){
-            resetWeight(c);
-        }
         return result;
     }
 
-    private void setWeight(Chunk c){
-        switch (c.type) {
-            case EQL:
-                diagonalCorrection[c.sourceStart][c.targetStart] = CORRECTION_WEIGHT;
-                break;
-            case DEL:
-                verticalCorrection[c.sourceStart][c.targetStart] = CORRECTION_WEIGHT;
-                break;
-            case INS:
-                horizontalCorrection[c.sourceStart][c.targetStart] = CORRECTION_WEIGHT;
-                break;
-            default:
-                throw new IllegalStateException();
-        }
-    }
-
-    private void resetWeight(Chunk c){
-        switch (c.type) {
-            case EQL:
-                diagonalCorrection[c.sourceStart][c.targetStart] = 0;
-                break;
-            case DEL:
-                verticalCorrection[c.sourceStart][c.targetStart] = 0;
-                break;
-            case INS:
-                horizontalCorrection[c.sourceStart][c.targetStart] = 0;
-                break;
-            default:
-                throw new IllegalStateException();
-        }
+    // the extra weight of the edge of the given type leaving (s, t)
+    int correctionWeight(final CorrectionSet correction, final Chunk.Type op, final int s, final int t) {
+        return correction.contains(op, s, t) ? CORRECTION_WEIGHT : 0;
     }
 
     record State(int s, int t) {}
@@ -129,7 +76,10 @@ public class CorrectionAstarDifferencer<T> implements CorrectionDifferencer<T>{
             CostFunction<Chunk.Type, State, Integer>,
             HeuristicFunction<State, Integer> {
 
-        public Search() {
+        final CorrectionSet correction;
+
+        public Search(final CorrectionSet correction) {
+            this.correction = correction;
         }
 
         public SearchProblem<Chunk.Type, State, WeightedNode<Chunk.Type, State, Integer>> createProblem() {
@@ -150,11 +100,11 @@ public class CorrectionAstarDifferencer<T> implements CorrectionDifferencer<T>{
 
         @Override
         public List<Chunk.Type> actionsFor(final State state) {
-            if (state.s < source.size() && state.t < target.size()) {
+            if (state.s < source.length && state.t < target.length) {
                 return OP_ALL;
-            } else if (state.s < source.size()) {
+            } else if (state.s < source.length) {
                 return OP_DEL;
-            } else if (state.t < target.size()) {
+            } else if (state.t < target.length) {
                 return OP_INS;
             } else {
                 return Collections.emptyList();
@@ -181,12 +131,12 @@ public class CorrectionAstarDifferencer<T> implements CorrectionDifferencer<T>{
         public Integer evaluate(final Transition<Chunk.Type, State> transition) {
             int cost = LINE_WEIGHT;
             if(transition.getAction() == Chunk.Type.EQL){
-                cost = LINE_WEIGHT*editGraphDiag[transition.getState().s-1][transition.getState().t-1];
-                cost += LINE_WEIGHT*diagonalCorrection[transition.getState().s-1][transition.getState().t-1];
+                cost = LINE_WEIGHT*diagonalWeight(transition.getState().s-1, transition.getState().t-1);
+                cost += LINE_WEIGHT*correctionWeight(correction, Chunk.Type.EQL, transition.getState().s-1, transition.getState().t-1);
             }else if(transition.getAction() == Chunk.Type.INS){
-                cost += LINE_WEIGHT*horizontalCorrection[transition.getState().s][transition.getState().t-1];
+                cost += LINE_WEIGHT*correctionWeight(correction, Chunk.Type.INS, transition.getState().s, transition.getState().t-1);
             }else{
-                cost += LINE_WEIGHT*verticalCorrection[transition.getState().s-1][transition.getState().t];
+                cost += LINE_WEIGHT*correctionWeight(correction, Chunk.Type.DEL, transition.getState().s-1, transition.getState().t);
                 // control the order of operations that prefers DEL-INS rather than INS-DEL
                 cost += transition.getState().t;
             }
@@ -195,7 +145,7 @@ public class CorrectionAstarDifferencer<T> implements CorrectionDifferencer<T>{
 
         @Override
         public Integer estimate(final State state) {
-            return Math.max(source.size() - state.s, target.size() - state.t) * LINE_WEIGHT;
+            return Math.max(source.length - state.s, target.length - state.t) * LINE_WEIGHT;
         }
     }
 }
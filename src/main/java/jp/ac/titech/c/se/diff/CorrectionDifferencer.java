@@ -3,6 +3,14 @@ package jp.ac.titech.c.se.diff;
 import java.util.List;
 import java.util.Collection;
 
+/**
+ * Computes a diff that avoids a given set of corrected edges.
+ * Implementations must not change any state in computeDiff, so that one instance can serve concurrent calls.
+ */
 public interface CorrectionDifferencer<T> {
-    List<Chunk> computeDiff(Collection<Chunk> correction);
+    List<Chunk> computeDiff(CorrectionSet correction);
+
+    default List<Chunk> computeDiff(Collection<Chunk> correction) {
+        return computeDiff(CorrectionSet.of(correction));
+    }
 }
@@ -1,115 +1,86 @@
 package jp.ac.titech.c.se.diff;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 import java.lang.StringBuffer;
 
 public final class CorrectionDynamicProgrammingDifferencer<T> implements CorrectionDifferencer<T> {
 
-    private final BiPredicate<T, T> equality;
-
-    final DynamicProgrammingDifferencer<T> dpDifferencer;
-    final List<T> source, target;
+    final int[] source, target;
     final int CORRECTION_WEIGHT;
-    final int[][][] editGraph;
 
     public CorrectionDynamicProgrammingDifferencer(final List<T> source, final List<T> target) {
-        this(Object::equals, source, target);
-    }
-
-    public CorrectionDynamicProgrammingDifferencer(BiPredicate<T, T> equality, final List<T> source, final List<T> target) {
-        this.equality = equality;
-        dpDifferencer = new DynamicProgrammingDifferencer<>(equality);
-        this.source = source;
-        this.target = target;
-        CORRECTION_WEIGHT = source.size() + target.size() + 1;
-        editGraph = new int[source.size()+1][target.size()+1][];
-        initGraph();
-    }
-
-    void initGraph(){
-        // editgraph[][][*] : DEL(vertical), INS(horizontal), EQL(diagonal)
-        editGraph[0][0] = new int[]{CORRECTION_WEIGHT,CORRECTION_WEIGHT,CORRECTION_WEIGHT};
-        for(int i = 1; i<= source.size(); i++){
-            editGraph[i][0] = new int[]{1,CORRECTION_WEIGHT,CORRECTION_WEIGHT};
-        }
-        for(int j = 1; j<= target.size(); j++){
-            editGraph[0][j] = new int[]{CORRECTION_WEIGHT,1,CORRECTION_WEIGHT};
-        }
-        for(int i = 1; i<= source.size(); i++){
-            for(int j=1; j<= target.size(); j++){
-                if(equality.test(source.get(i - 1), target.get(j - 1))){
-                    editGraph[i][j] = new int[]{1,1,0};
-                }else{
-                    editGraph[i][j] = new int[]{1,1,CORRECTION_WEIGHT};
-                }
-            }
-        }
+        this(new LineInterner<>(), source, target);
     }
 
-    @Override
-    public List<Chunk> computeDiff(Collection<Chunk> correction){
-        for(Chunk c: correction){
-            setWeight(c);
-        }
-        //showEditGraph();
-        DynamicProgrammingDifferencer.Node[][] matrix = makeMatrix();
-        for(Chunk c: correction){
-            resetWeight(c);
-        }
-        return dpDifferencer.findSolution(matrix, source, target);
+    public CorrectionDynamicProgrammingDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash, final List<T> source, final List<T> target) {
+        this(new LineInterner<>(equality, hash), source, target);
     }
 
-    private void setWeight(Chunk c) {
-        editGraph[c.sourceEnd][c.targetEnd][typeToIndex(c.type)] = CORRECTION_WEIGHT;
+    private CorrectionDynamicProgrammingDifferencer(final LineInterner<T> interner, final List<T> source, final List<T> target) {
+        this(interner.intern(source), interner.intern(target));
     }
 
-    private void resetWeight(Chunk c){
-        editGraph[c.sourceEnd][c.targetEnd][typeToIndex(c.type)] = 1;
+    public CorrectionDynamicProgrammingDifferencer(final int[] source, final int[] target) {
+        this.source = source;
+        this.target = target;
+        CORRECTION_WEIGHT = source.length + target.length + 1;
+        makeMatrix();
     }
 
-    private int typeToIndex(Chunk.Type t){
-        return switch(t){
-            case DEL -> 0;
-            case INS -> 1;
-            case EQL -> 2;
+    // the weight of the edge of the given type ending at (i, j) without corrections: DEL(vertical), INS(horizontal), EQL(diagonal)
+    // edges leaving the graph and mismatched diagonals weigh CORRECTION_WEIGHT
+    int baseWeight(final Chunk.Type type, final int i, final int j) {
+        return switch (type) {
+            case DEL -> i > 0 ? 1 : CORRECTION_WEIGHT;
+            case INS -> j > 0 ? 1 : CORRECTION_WEIGHT;
+            case EQL -> i > 0 && j > 0 && source[i - 1] == target[j - 1] ? 0 : CORRECTION_WEIGHT;
             default -> throw new IllegalStateException();
         };
     }
 
+    @Override
+    public List<Chunk> computeDiff(CorrectionSet correction){
+        if (correction.isEmpty()) {
+            return baseTraceback.findPath();
+        }
+        return new Region(correction).findPath();
+    }
+
     void showEditGraph(){
         StringBuffer sb = new StringBuffer("@");
         StringBuffer sb2;
-        for(int j = 1; j<= target.size(); j++){
-            if(editGraph[0][j][1] == 1){
+        for(int j = 1; j<= target.length; j++){
+            if(baseWeight(Chunk.Type.INS, 0, j) == 1){
                 sb.append("-@");
             }else{
                 sb.append(" @");
             }
         }
         System.out.println(sb.toString());
-        for(int i = 1; i<= source.size(); i++){
+        for(int i = 1; i<= source.length; i++){
             sb = new StringBuffer();//ノードとノードの間の行
-            if(editGraph[i][0][0] == 1){
+            if(baseWeight(Chunk.Type.DEL, i, 0) == 1){
                 sb.append("|");
             }else{
                 sb.append(" ");
             }
             sb2 = new StringBuffer("@"); //ノードのある行
-            for(int j=1; j<= target.size(); j++){
-                if(editGraph[i][j][2] <= 1){
+            for(int j=1; j<= target.length; j++){
+                if(baseWeight(Chunk.Type.EQL, i, j) <= 1){
                     sb.append("\\");
                 }else{
                     sb.append(" ");
                 }
-                if(editGraph[i][j][0] == 1){
+                if(baseWeight(Chunk.Type.DEL, i, j) == 1){
                     sb.append("|");
                 }else{
                     sb.append(" ");
                 }
-                if(editGraph[i][j][1] == 1){
+                if(baseWeight(Chunk.Type.INS, i, j) == 1){
                     sb2.append("-@");
                 }else{
                     sb2.append(" @");
@@ -120,51 +91,153 @@ public final class CorrectionDynamicProgrammingDifferencer<T> implements Correct
         }
     }
 
-    public DynamicProgrammingDifferencer.Node[][] makeMatrix() {
-        final DynamicProgrammingDifferencer.Node[][] matrix = new DynamicProgrammingDifferencer.Node[source.size() + 1][target.size() + 1];
-        for (int i = 0; i <= source.size(); i++) {
-            for (int j = 0; j <= target.size(); j++) {
-                matrix[i][j] = new DynamicProgrammingDifferencer.Node(0);
-            }
+    // costs and traceback of the edit graph without corrections, shared by all calls.
+    // Both are dense, so the memory of an instance is O(N * M) whatever the corrections are;
+    // only the work and memory per call scale with the region that the corrections change.
+    // Every index i * (M + 1) + j is below the size of baseCost, which is checked not to overflow.
+    private int[] baseCost;
+    private Traceback baseTraceback;
+
+    private void makeMatrix() {
+        final int rows = source.length + 1;
+        final int columns = target.length + 1;
+        final int[] cost = new int[Math.multiplyExact(rows, columns)];
+        final Traceback traceback = new Traceback(rows, columns);
+        for (int j = 1; j <= target.length; j++) {
+            cost[j] = cost[j - 1] + baseWeight(Chunk.Type.INS, 0, j);
+            traceback.set(0, j, Traceback.FROM_HORIZONTAL);
+        }
+        for (int i = 1; i <= source.length; i++) {
+            cost[i * columns] = cost[(i - 1) * columns] + baseWeight(Chunk.Type.DEL, i, 0);
+            traceback.set(i, 0, Traceback.FROM_VERTICAL);
         }
 
-        for (int i = 1; i <= source.size(); i++) {
-            matrix[i][0].cost = matrix[i - 1][0].cost + editGraph[i][0][0];
-            matrix[i][0].fromVertical = true;
-            matrix[i][0].fromHorizontal = false;
-            matrix[i][0].fromDiagonal = false;
+        // every cell reads only cells above or to the left of it, which the wavefront fills first;
+        // interior edges weigh 1 except the diagonals, which are inlined from baseWeight
+        final Wavefront.TileFiller fill = (r, c, i0, i1, j0, j1) -> {
+            for (int i = i0; i < i1; i++) {
+                final int row = i * columns;
+                final int prev = row - columns;
+                final int line = source[i - 1];
+                for (int j = j0; j < j1; j++) {
+                    final int diagonal = cost[prev + j - 1] + (line == target[j - 1] ? 0 : CORRECTION_WEIGHT);
+                    final int vertical = cost[prev + j] + 1;
+                    final int horizontal = cost[row + j - 1] + 1;
+                    final int min = Math.min(diagonal, Math.min(horizontal, vertical));
+                    cost[row + j] = min;
+                    traceback.set(i, j, DynamicProgrammingDifferencer.from(min, horizontal, vertical));
+                }
+            }
+        };
+        if (Wavefront.worthwhile(rows, columns)) {
+            Wavefront.fill(rows, columns, fill);
+        } else {
+            fill.fill(0, 0, 1, rows, 1, columns);
         }
-        for (int j = 1; j <= target.size(); j++) {
-            matrix[0][j].cost = matrix[0][j - 1].cost + editGraph[0][j][1];
-            matrix[0][j].fromVertical = false;
-            matrix[0][j].fromHorizontal = true;
-            matrix[0][j].fromDiagonal = false;
+        baseCost = cost;
+        baseTraceback = traceback;
+    }
+
+    /**
+     * The part of the matrix that a set of corrections can change: every cell at or below/right of
+     * the end of a corrected edge. Only this part is recomputed; the rest is read from the base matrix.
+     * Recomputation stops early once a row below all corrections comes out with its base costs.
+     * The corrected weights are looked up in the correction set; the others follow from the lines.
+     */
+    class Region {
+        final CorrectionSet correction;
+        final int top;
+        final int[] starts;
+        // whether some corrected edge ends in the row
+        final boolean[] corrected;
+        final int[][] costs;
+        final byte[][] froms;
+        int bottom;
+
+        Region(final CorrectionSet correction) {
+            this.correction = correction;
+            final List<Chunk> chunks = correction.toList();
+            int first = source.length + 1;
+            int last = 0;
+            for (final Chunk c : chunks) {
+                first = Math.min(first, c.sourceEnd);
+                last = Math.max(last, c.sourceEnd);
+            }
+            top = first;
+            starts = new int[source.length + 1 - top];
+            corrected = new boolean[starts.length];
+            Arrays.fill(starts, target.length + 1);
+            for (final Chunk c : chunks) {
+                starts[c.sourceEnd - top] = Math.min(starts[c.sourceEnd - top], c.targetEnd);
+                corrected[c.sourceEnd - top] = true;
+            }
+            for (int k = 1; k < starts.length; k++) {
+                starts[k] = Math.min(starts[k], starts[k - 1]);
+            }
+            costs = new int[starts.length][];
+            froms = new byte[starts.length][];
+            fill(last);
         }
 
-        for (int i = 1; i <= source.size(); i++) {
-            for (int j = 1; j <= target.size(); j++) {
-                final int diagonal = matrix[i - 1][j - 1].cost + editGraph[i][j][2];
-                final int vertical = matrix[i - 1][j].cost + editGraph[i][j][0];
-                final int horizontal = matrix[i][j - 1].cost + editGraph[i][j][1];
-                final int min = Math.min(diagonal, Math.min(horizontal, vertical));
-
-                final DynamicProgrammingDifferencer.Node node = matrix[i][j];
-                node.fromVertical = false;
-                node.fromHorizontal = false;
-                node.fromDiagonal = false;
-                node.cost = min;
-                if (min == vertical) {
-                    node.fromVertical = true;
-                }
-                if (min == horizontal) {
-                    node.fromHorizontal = true;
+        private void fill(final int last) {
+            for (int i = top; i <= source.length; i++) {
+                final int start = starts[i - top];
+                final int[] cost = new int[target.length + 1 - start];
+                final byte[] from = new byte[cost.length];
+                costs[i - top] = cost;
+                froms[i - top] = from;
+                bottom = i;
+                final boolean lookup = corrected[i - top];
+                boolean changed = false;
+                for (int j = start; j <= target.length; j++) {
+                    final int min;
+                    if (i == 0) {
+                        min = cost(i, j - 1) + weight(lookup, Chunk.Type.INS, i, j);
+                        from[j - start] = Traceback.FROM_HORIZONTAL;
+                    } else if (j == 0) {
+                        min = cost(i - 1, j) + weight(lookup, Chunk.Type.DEL, i, j);
+                        from[j - start] = Traceback.FROM_VERTICAL;
+                    } else {
+                        final int diagonal = cost(i - 1, j - 1) + weight(lookup, Chunk.Type.EQL, i, j);
+                        final int vertical = cost(i - 1, j) + weight(lookup, Chunk.Type.DEL, i, j);
+                        final int horizontal = cost(i, j - 1) + weight(lookup, Chunk.Type.INS, i, j);
+                        min = Math.min(diagonal, Math.min(horizontal, vertical));
+                        from[j - start] = (byte) DynamicProgrammingDifferencer.from(min, horizontal, vertical);
+                    }
+                    cost[j - start] = min;
+                    changed |= min != baseCost[i * (target.length + 1) + j];
                 }
-                if (min == diagonal) {
-                    node.fromDiagonal = true;
+                if (!changed && i >= last) {
+                    break;
                 }
             }
         }
-        return matrix;
+
+        // the weight of the edge of the given type ending at (i, j), raised if the row has corrections and this edge is one
+        private int weight(final boolean lookup, final Chunk.Type type, final int i, final int j) {
+            final boolean raised = lookup && switch (type) {
+                case DEL -> i > 0 && correction.contains(type, i - 1, j);
+                case INS -> j > 0 && correction.contains(type, i, j - 1);
+                default -> i > 0 && j > 0 && correction.contains(type, i - 1, j - 1);
+            };
+            return raised ? CORRECTION_WEIGHT : baseWeight(type, i, j);
+        }
+
+        private boolean contains(final int i, final int j) {
+            return i >= top && i <= bottom && j >= starts[i - top];
+        }
+
+        int cost(final int i, final int j) {
+            return contains(i, j) ? costs[i - top][j - starts[i - top]] : baseCost[i * (target.length + 1) + j];
+        }
+
+        int from(final int i, final int j) {
+            return contains(i, j) ? froms[i - top][j - starts[i - top]] : baseTraceback.get(i, j);
+        }
+
+        List<Chunk> findPath() {
+            return Traceback.findPath(source.length + 1, target.length + 1, this::from, 0, 0);
+        }
     }
 
 }
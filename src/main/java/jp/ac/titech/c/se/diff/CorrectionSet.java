@@ -0,0 +1,107 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable set of corrections, encoded as sorted packed longs.
+ * Equal sets have equal encodings regardless of the order in which the corrections were added,
+ * so this can be used as a hash key.
+ */
+public final class CorrectionSet {
+    public static final CorrectionSet EMPTY = new CorrectionSet(new long[0]);
+
+    private final long[] keys;
+    private final int hash;
+
+    private CorrectionSet(final long[] keys) {
+        this.keys = keys;
+        this.hash = Arrays.hashCode(keys);
+    }
+
+    public static CorrectionSet of(final Collection<Chunk> correction) {
+        final long[] keys = new long[correction.size()];
+        int n = 0;
+        for (final Chunk c : correction) {
+            keys[n++] = pack(c);
+        }
+        Arrays.sort(keys);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || keys[m - 1] != keys[i]) {
+                keys[m++] = keys[i];
+            }
+        }
+        return new CorrectionSet(m == n ? keys : Arrays.copyOf(keys, m));
+    }
+
+    // an edge is identified by its type and its starting cell
+    static long pack(final Chunk.Type type, final int s, final int t) {
+        return ((long) s << 33) | ((long) t << 2) | type.ordinal();
+    }
+
+    static long pack(final Chunk c) {
+        return pack(c.type, c.sourceStart, c.targetStart);
+    }
+
+    static Chunk unpack(final long key) {
+        final Chunk.Type type = Chunk.Type.values()[(int) (key & 3)];
+        final int s = (int) (key >>> 33);
+        final int t = (int) ((key >>> 2) & 0x7FFFFFFF);
+        return switch (type) {
+            case DEL -> new Chunk(type, s, s + 1, t, t);
+            case INS -> new Chunk(type, s, s, t, t + 1);
+            default -> new Chunk(type, s, s + 1, t, t + 1);
+        };
+    }
+
+    public CorrectionSet with(final Chunk c) {
+        final long key = pack(c);
+        final int i = Arrays.binarySearch(keys, key);
+        if (i >= 0) {
+            return this;
+        }
+        final int at = -i - 1;
+        final long[] result = new long[keys.length + 1];
+        System.arraycopy(keys, 0, result, 0, at);
+        result[at] = key;
+        System.arraycopy(keys, at, result, at + 1, keys.length - at);
+        return new CorrectionSet(result);
+    }
+
+    public boolean contains(final Chunk.Type type, final int s, final int t) {
+        return Arrays.binarySearch(keys, pack(type, s, t)) >= 0;
+    }
+
+    public boolean contains(final Chunk c) {
+        return Arrays.binarySearch(keys, pack(c)) >= 0;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    public List<Chunk> toList() {
+        final List<Chunk> result = new ArrayList<>(keys.length);
+        for (final long key : keys) {
+            result.add(unpack(key));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof CorrectionSet other && hash == other.hash && Arrays.equals(keys, other.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
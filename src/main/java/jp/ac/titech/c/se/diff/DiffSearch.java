@@ -1,11 +1,23 @@
 package jp.ac.titech.c.se.diff;
 
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.MyersDiff;
 
 import es.usc.citius.hipster.util.Predicate;
 import es.usc.citius.hipster.model.Node;
+import es.usc.citius.hipster.algorithm.AStar;
 import es.usc.citius.hipster.algorithm.Hipster;
 import es.usc.citius.hipster.algorithm.Algorithm.SearchResult;
 import es.usc.citius.hipster.model.Transition;
@@ -18,8 +30,6 @@ import es.usc.citius.hipster.model.impl.WeightedNode;
 import es.usc.citius.hipster.model.problem.ProblemBuilder;
 import es.usc.citius.hipster.model.problem.SearchProblem;
 
-import org.apache.commons.collections4.CollectionUtils;
-
 public final class DiffSearch implements
     ActionFunction<Chunk, ModificationState>,
     ActionStateTransitionFunction<Chunk, ModificationState>,
@@ -28,28 +38,68 @@ public final class DiffSearch implements
 
     final List<String> source;
     final List<String> target;
-    final List<Chunk> targetDiff;
+    final EditScript targetDiff;
+    // packed keys of the chunks of the target diff
+    final LongHashSet targetIndex;
     final CorrectionDifferencer<String> corrctionDifferencer;
     final static int STEPWEIGHT = 1000;
     final boolean detail;
     final boolean logging;
 
-    static int searchCount = 0;
+    final Metrics metrics = new Metrics();
+    // every correction set reached so far. All edges cost the same, so the first time a set is
+    // generated it already has its least cost, and generating it again from another parent is useless.
+    final Set<CorrectionSet> generated = new HashSet<>();
+    // the apply log, buffered; null unless logging
+    final PrintWriter log;
+    final PrefetchedPaths prefetched = new PrefetchedPaths();
+    // number of threads computing the successors of a node; 1 to compute them one by one in apply()
+    final int threads;
+    // the pool of those threads while a search runs, or null
+    ForkJoinPool pool;
+
+    public DiffSearch(App.DifferencerType type, List<String> source, List<String> target, boolean detail, boolean logging, boolean trim, int threads){
+        this(type, source, target, new LineInterner<>(), detail, logging, trim, threads);
+    }
+
+    private DiffSearch(App.DifferencerType type, List<String> source, List<String> target, LineInterner<String> interner, boolean detail, boolean logging, boolean trim, int threads){
+        this(type, source, target, interner.intern(source), interner.intern(target), detail, logging, trim, threads);
+    }
 
-    public DiffSearch(App.DifferencerType type, List<String> source, List<String> target, boolean detail, boolean logging){
+    /**
+     * Searches over lines that are already interned, e.g. by {@link MappedText.Interner}; the lines are only read for printing.
+     */
+    public DiffSearch(App.DifferencerType type, List<String> source, List<String> target, int[] sourceIds, int[] targetIds, boolean detail, boolean logging, boolean trim, int threads){
         this.source = source;
         this.target = target;
         this.detail = detail;
         this.logging = logging;
-        corrctionDifferencer = getCorrectionDifferencer(type, source, target);
-        targetDiff = computeTargetDiff(source, target);
+        this.log = logging ? App.openOutput() : null;
+        this.threads = threads;
+        try (Metrics.Timer timer = metrics.phase("setup")) {
+            corrctionDifferencer = trim
+                ? new TrimmingCorrectionDifferencer<>(sourceIds, targetIds, (s, t) -> getCorrectionDifferencer(type, s, t))
+                : getCorrectionDifferencer(type, sourceIds, targetIds);
+            targetDiff = computeTargetDiff(sourceIds, targetIds);
+            targetIndex = index(targetDiff);
+        }
+    }
+
+    // a line of a path is identified by its type and its starting cell
+    static LongHashSet index(EditScript path) {
+        final LongHashSet index = new LongHashSet(path.size());
+        path.forEachLine((type, s, t) -> index.add(CorrectionSet.pack(type, s, t)));
+        return index;
     }
 
-    private List<Chunk> computeTargetDiff(List<String> source, List<String> target){
+    ModificationState createState(CorrectionSet correction, EditScript path) {
+        return new ModificationState(correction, path, path.countLines(targetIndex::contains));
+    }
+
+    private EditScript computeTargetDiff(int[] source, int[] target){
         List<Chunk> diff = new JGitDifferencer.Histogram<String>().computeDiff(source, target);
-        diff = Chunkase.degrade(diff, source.size(), target.size());
         //diff = getCorrectDiff(source, target);
-        return diff;
+        return EditScript.of(diff);
     }
 
     public void showCorrection(Collection<Chunk> correction) {
@@ -78,16 +128,16 @@ public final class DiffSearch implements
         }
     }
 
-    public String getPathAsString(List<Chunk> path){
+    public String getPathAsString(EditScript path){
         StringBuffer sb = new StringBuffer();
-        for(Chunk c : path){
-            char type = switch (c.type){
+        for(int r = 0; r < path.runs(); r++){
+            char type = switch (path.type(r)){
                 case EQL -> 'E';
                 case DEL -> 'D';
                 case INS -> 'I';
                 case MOD -> 'M';
             };
-            sb.append(type);
+            sb.append(String.valueOf(type).repeat(path.length(r)));
         }
         return sb.toString();
     }
@@ -109,18 +159,31 @@ public final class DiffSearch implements
         return sb.toString();
     }
 
-    public CorrectionDifferencer<String> getCorrectionDifferencer(App.DifferencerType differencerType, List<String> source, List<String> target) {
+    public static CorrectionDifferencer<String> getCorrectionDifferencer(App.DifferencerType differencerType, int[] source, int[] target) {
         return switch (differencerType) {
-            case dp -> new CorrectionDynamicProgrammingDifferencer<>(source, target);
+            case dp, hirschberg, bitlcs, vector -> new CorrectionDynamicProgrammingDifferencer<>(source, target);
             case astar -> new CorrectionAstarDifferencer<>(source, target);
-            case myers -> throw new IllegalArgumentException("no implementation");
-            case histogram -> throw new IllegalArgumentException("no implementation");
+            case fastastar, snakeastar -> new FastCorrectionAstarDifferencer<>(source, target);
+            case myers -> new JGitCorrectionDifferencer<>(MyersDiff.INSTANCE, source, target);
+            case histogram -> new JGitCorrectionDifferencer<>(new HistogramDiff(), source, target);
         };
     }
     
-    public void search(){
+    public ModificationState search(){
+        return search(null);
+    }
+
+    /**
+     * Searches within the given budget, or runs Hipster A* to completion if it is null, and returns the state found.
+     * A budgeted search that runs out prints the closest state found, with its distance to the target diff.
+     */
+    public ModificationState search(BudgetedSearch.Budget budget){
         Predicate<WeightedNode<Chunk, ModificationState, Integer>> gp = new GoalPredicate<>(targetDiff);
-        ModificationState initState = new ModificationState(corrctionDifferencer.computeDiff(new HashSet<>()));
+        ModificationState initState;
+        try (Metrics.Timer timer = metrics.phase("initial")) {
+            initState = createState(CorrectionSet.EMPTY, computeDiff(CorrectionSet.EMPTY));
+        }
+        generated.add(initState.correction);
 
         if(detail){
             System.out.printf("differencer:%s\n", corrctionDifferencer.getClass().getSimpleName());
@@ -130,18 +193,93 @@ public final class DiffSearch implements
             System.out.println(getPathAsString(targetDiff));
         }
 
-        var searchResult = Hipster.createAStar(createProblem(initState)).search(gp);
-        WeightedNode<Chunk, ModificationState, Integer> result = searchResult.getGoalNode();
-        System.out.printf("%d corrections:",result.state().correction.size());
-        System.out.println(getCorrectionAsString(result.state().correction));
+        final Metrics.Timer timer = metrics.phase("search");
+        final ModificationState result;
+        String summary = null;
+        BudgetedSearch.Result budgeted = null;
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            if (budget == null) {
+                var searchResult = searchAStar(initState, gp);
+                result = searchResult.getGoalNode().state();
+                summary = searchResult.toString();
+            } else {
+                budgeted = new BudgetedSearch(this, budget).run(initState);
+                result = budgeted.state();
+            }
+        } finally {
+            if (pool != null) {
+                shutdown(pool);
+                pool = null;
+            }
+        }
+        timer.close();
+        metrics.prefetchTaken = prefetched.taken;
+        metrics.prefetchMissed = prefetched.missed;
+        // the apply log comes first, then the verdict
+        if (log != null) {
+            log.flush();
+        }
+        if (budgeted != null && !budgeted.complete()) {
+            if (budgeted.remaining() == 0) {
+                System.out.printf("budget exhausted: the target diff is reached, but maybe not with the fewest corrections\n");
+            } else {
+                System.out.printf("budget exhausted: %d chunks off the target diff\n", budgeted.remaining());
+            }
+        }
+        System.out.printf("%d corrections:",result.correction.size());
+        System.out.println(getCorrectionAsString(result.correction.toList()));
 
         if(detail){
-            showCorrection(result.state().correction);
+            showCorrection(result.correction.toList());
             System.out.printf("path   :");
-            System.out.println(getPathAsString(result.state().path));
-            System.err.printf("apply  :%d\n",searchCount);
-            System.out.println(searchResult.toString());
+            System.out.println(getPathAsString(result.path));
+            System.err.printf("apply  :%d\n",metrics.applies);
+            System.err.printf("pruned :%d\n",metrics.pruned);
+            System.err.printf("prefetch:%d computed ahead, %d taken by apply, %d computed in apply\n",metrics.prefetched,metrics.prefetchTaken,metrics.prefetchMissed);
+            if (summary != null) {
+                System.out.println(summary);
+            }
         }
+        return result;
+    }
+
+    // waits for the workers to end, so that the search phase counts their allocations once, through their tasks
+    private static void shutdown(final ForkJoinPool pool) {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Hipster's search(goal), stepping the iterator itself to record the peak size of the open set
+    private AStar<Chunk, ModificationState, Integer, WeightedNode<Chunk, ModificationState, Integer>>.SearchResult searchAStar(
+            ModificationState initState, Predicate<WeightedNode<Chunk, ModificationState, Integer>> gp) {
+        final AStar<Chunk, ModificationState, Integer, WeightedNode<Chunk, ModificationState, Integer>> aStar = Hipster.createAStar(createProblem(initState));
+        final AStar<Chunk, ModificationState, Integer, WeightedNode<Chunk, ModificationState, Integer>>.Iterator it = aStar.iterator();
+        final long start = System.currentTimeMillis();
+        int iterations = 0;
+        WeightedNode<Chunk, ModificationState, Integer> node = null;
+        while (it.hasNext()) {
+            iterations++;
+            node = it.next();
+            metrics.openPeak = Math.max(metrics.openPeak, it.getOpen().size());
+            if (gp.apply(node)) {
+                break;
+            }
+        }
+        return aStar.new SearchResult(node, iterations, System.currentTimeMillis() - start);
+    }
+
+    boolean isGoal(ModificationState state) {
+        return state.path.equals(targetDiff);
+    }
+
+    // the number of chunks in only one of the path of the state and the target diff
+    int remaining(ModificationState state) {
+        return targetIndex.size() + state.path.size() - 2 * state.matched;
     }
 
     public SearchProblem<Chunk, ModificationState, WeightedNode<Chunk, ModificationState, Integer>> createProblem(ModificationState initState) {
@@ -157,7 +295,7 @@ public final class DiffSearch implements
 
     @Override
     public Integer estimate(ModificationState state) {
-        return CollectionUtils.subtract(targetDiff, state.path).size()*STEPWEIGHT;
+        return (targetIndex.size() - state.matched)*STEPWEIGHT;
         //全探索
         //return 0;
     }
@@ -169,12 +307,15 @@ public final class DiffSearch implements
 
     @Override
     public ModificationState apply(Chunk action, ModificationState state) {
-        Collection<Chunk> correction = new HashSet<>(state.correction);
-        correction.add(action);
-        List<Chunk> path = corrctionDifferencer.computeDiff(correction);
+        final CorrectionSet correction = state.correction.with(action);
+        EditScript path = prefetched.take(correction);
+        if (path == null) {
+            path = computeDiff(correction);
+        }
 
-        searchCount++;
-        if (logging) printApplyLog(correction, path);
+        final ModificationState next = createState(correction, path);
+        metrics.applies++;
+        if (logging) printApplyLog(next);
 
         /*
         try {
@@ -184,32 +325,91 @@ public final class DiffSearch implements
         }
         */
 
-        return new ModificationState(correction,path);
+        return next;
     }
 
-    private void printApplyLog(Collection<Chunk> correction, List<Chunk> path) {
+    private void printApplyLog(ModificationState state) {
         //String pathString = getPathAsString(path);
-        int sameNum = CollectionUtils.intersection(targetDiff,path).size();
-        String correctionString = getCorrectionAsString(correction);
-        System.out.println(String.format("<%d:%d> %s",searchCount, sameNum, correctionString));
+        log.print('<');
+        log.print(metrics.applies);
+        log.print(':');
+        log.print(state.matched);
+        log.print("> ");
+        log.println(getCorrectionAsString(state.correction.toList()));
+    }
+
+    private EditScript computeDiff(CorrectionSet correction) {
+        final long start = System.nanoTime();
+        final EditScript path = EditScript.of(corrctionDifferencer.computeDiff(correction));
+        metrics.recordDiff(System.nanoTime() - start);
+        return path;
     }
 
     @Override
     public Iterable<Chunk> actionsFor(ModificationState state) {
-        return new HashSet<Chunk>(CollectionUtils.subtract(state.path, targetDiff));
+        metrics.expansions++;
+        final Set<Chunk> candidates = new HashSet<>();
+        state.path.forEachLine((type, s, t) -> {
+            final long key = CorrectionSet.pack(type, s, t);
+            if (!targetIndex.contains(key)) {
+                candidates.add(CorrectionSet.unpack(key));
+            }
+        });
+        final List<Chunk> actions = new ArrayList<>();
+        final List<CorrectionSet> successors = new ArrayList<>();
+        for (Chunk action : candidates) {
+            final CorrectionSet successor = state.correction.with(action);
+            if (generated.add(successor)) {
+                actions.add(action);
+                successors.add(successor);
+            } else {
+                metrics.pruned++;
+            }
+        }
+        if (pool != null) {
+            prefetch(successors);
+        }
+        return actions;
+    }
+
+    /**
+     * Computes the paths of the given successors on the pool, and hands them over to apply().
+     * The search itself stays sequential: apply() then takes the paths computed ahead,
+     * so the result is the same as with a single thread.
+     * The first failure of a task is rethrown here, once all of them are done.
+     */
+    private void prefetch(Collection<CorrectionSet> successors) {
+        final List<Callable<Void>> tasks = new ArrayList<>(successors.size());
+        for (CorrectionSet key : successors) {
+            tasks.add(() -> metrics.measure(() -> {
+                prefetched.put(key, computeDiff(key));
+                return null;
+            }));
+        }
+        metrics.prefetched += tasks.size();
+        for (final Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
     }
 
     class GoalPredicate<N extends Node<Chunk, ModificationState, N>> implements Predicate<N> {
 
-        final private List<Chunk> basePath;
+        final private EditScript basePath;
 
-        public GoalPredicate(List<Chunk> path){
-        basePath = path;
+        public GoalPredicate(EditScript path){
+            basePath = path;
         }
 
         @Override
         public boolean apply(N node) {
-            return basePath.equals(node.state().path);
+            return node.state().path.equals(basePath);
         }
     }
 
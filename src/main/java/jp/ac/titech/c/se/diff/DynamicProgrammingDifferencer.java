@@ -1,107 +1,115 @@
 package jp.ac.titech.c.se.diff;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
-public final class DynamicProgrammingDifferencer<T> implements Differencer<T> {
+public final class DynamicProgrammingDifferencer<T> implements Differencer<T>, TokenDifferencer {
     private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
 
     public DynamicProgrammingDifferencer() {
-        this(Object::equals);
+        this(null, null);
     }
 
-    public DynamicProgrammingDifferencer(BiPredicate<T, T> equality) {
+    public DynamicProgrammingDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash) {
         this.equality = equality;
+        this.hash = hash;
     }
 
-    public static class Node {
-        public int cost = 0;
-        public boolean fromDiagonal = false;
-        public boolean fromHorizontal = false;
-        public boolean fromVertical = false;
-        public Node(final int cost) {
-            this.cost = cost;
-        }
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
     }
 
-    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
-        final Node[][] matrix = new Node[source.size() + 1][target.size() + 1];
-        for (int i = 0; i <= source.size(); i++) {
-            for (int j = 0; j <= target.size(); j++) {
-                matrix[i][j] = new Node(0);
-            }
-        }
-        for (int i = 1; i <= source.size(); i++) {
-            matrix[i][0].cost = matrix[i - 1][0].cost + 1;
-            matrix[i][0].fromVertical = true;
-            matrix[i][0].fromHorizontal = false;
-            matrix[i][0].fromDiagonal = false;
-        }
-        for (int j = 1; j <= target.size(); j++) {
-            matrix[0][j].cost = matrix[0][j - 1].cost + 1;
-            matrix[0][j].fromVertical = false;
-            matrix[0][j].fromHorizontal = true;
-            matrix[0][j].fromDiagonal = false;
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        final int rows = source.length + 1;
+        final int columns = target.length + 1;
+        final Traceback traceback = new Traceback(rows, columns);
+        final Fill fill = new Fill(source, target, traceback);
+        if (Wavefront.worthwhile(rows, columns)) {
+            Wavefront.fill(rows, columns, fill);
+        } else {
+            fill.fill(0, 0, 1, rows, 1, columns);
         }
+        return traceback.findPath();
+    }
 
-        for (int i = 1; i <= source.size(); i++) {
-            for (int j = 1; j <= target.size(); j++) {
-                boolean eq = equality.test(source.get(i - 1), target.get(j - 1));
-                final int diagonal = matrix[i - 1][j - 1].cost + (eq ? 0 : 100);
-                final int vertical = matrix[i - 1][j].cost + 1;
-                final int horizontal = matrix[i][j - 1].cost + 1;
-                final int min = Math.min(diagonal, Math.min(horizontal, vertical));
+    /**
+     * Fills the traceback over a tile, or over the whole matrix as a single tile, keeping two rows of costs.
+     * Tiles pass their last row and column on through buffers indexed by tile row and tile column modulo 3:
+     * the next tile to overwrite a buffer is three tile rows (or columns) away, so it runs on a later
+     * anti-diagonal than every tile that reads the buffer.
+     */
+    static final class Fill implements Wavefront.TileFiller {
+        final int[] source, target;
+        final Traceback traceback;
+        // last rows of the tile rows, and last columns of the tile columns; slot 2 starts as row 0 and column 0
+        final int[][] bottoms, rights;
 
-                final Node node = matrix[i][j];
-                node.fromVertical = false;
-                node.fromHorizontal = false;
-                node.fromDiagonal = false;
-                node.cost = min;
-                if (min == vertical) {
-                    node.fromVertical = true;
-                }
-                if (min == horizontal) {
-                    node.fromHorizontal = true;
+        Fill(final int[] source, final int[] target, final Traceback traceback) {
+            this.source = source;
+            this.target = target;
+            this.traceback = traceback;
+            bottoms = new int[3][target.length + 1];
+            rights = new int[3][source.length + 1];
+            for (int j = 0; j <= target.length; j++) {
+                bottoms[2][j] = j;
+                if (j > 0) {
+                    traceback.set(0, j, Traceback.FROM_HORIZONTAL);
                 }
-                if (min == diagonal) {
-                    node.fromDiagonal = true;
+            }
+            for (int i = 0; i <= source.length; i++) {
+                rights[2][i] = i;
+                if (i > 0) {
+                    traceback.set(i, 0, Traceback.FROM_VERTICAL);
                 }
             }
         }
-        return findSolution(matrix, source, target);
-    }
 
-    List<Chunk> findSolution(Node[][] matrix, List<T> source, List<T> target) {
-        final Stack<Chunk> stack = findSolution0(matrix, source.size(), target.size(), new Stack<>());
-        final List<Chunk> result = new ArrayList<>(stack);
-        Collections.reverse(result);
-        return result;
-    }
-
-    Stack<Chunk> findSolution0(Node[][] matrix, final int i, final int j, final Stack<Chunk> path) {
-        if (i == 0 && j == 0) {
-            return path;
+        @Override
+        public void fill(final int r, final int c, final int i0, final int i1, final int j0, final int j1) {
+            final int[] above = bottoms[(r + 2) % 3];
+            final int[] left = rights[(c + 2) % 3];
+            final int[] below = bottoms[r % 3];
+            final int[] right = rights[c % 3];
+            final int width = j1 - j0;
+            // costs of the columns j0 - 1 .. j1 - 1 in the previous and the current row
+            int[] prev = new int[width + 1];
+            int[] cur = new int[width + 1];
+            System.arraycopy(above, j0 - 1, prev, 0, width + 1);
+            for (int i = i0; i < i1; i++) {
+                cur[0] = left[i];
+                final int s = source[i - 1];
+                for (int k = 1; k <= width; k++) {
+                    final int j = j0 - 1 + k;
+                    final int diagonal = prev[k - 1] + (s == target[j - 1] ? 0 : 100);
+                    final int vertical = prev[k] + 1;
+                    final int horizontal = cur[k - 1] + 1;
+                    final int min = Math.min(diagonal, Math.min(horizontal, vertical));
+                    cur[k] = min;
+                    traceback.set(i, j, from(min, horizontal, vertical));
+                }
+                right[i] = cur[width];
+                final int[] tmp = prev;
+                prev = cur;
+                cur = tmp;
+            }
+            System.arraycopy(prev, 1, below, j0, width);
+            if (c == 0) {
+                below[0] = prev[0];
+            }
         }
+    }
 
-        final Node n = matrix[i][j];
-        if (n.fromHorizontal) {
-            path.push(new Chunk(Chunk.Type.INS, i, i, j - 1, j));
-            return findSolution0(matrix, i, j - 1, path);
-        }
-        else if (n.fromVertical) {
-            path.push(new Chunk(Chunk.Type.DEL, i - 1, i, j, j));
-            return findSolution0(matrix, i - 1, j, path);
-        }
-        else if (n.fromDiagonal) {
-            path.push(new Chunk(Chunk.Type.EQL, i - 1, i, j - 1, j));
-            return findSolution0(matrix, i - 1, j - 1, path);
-        }
-        else {
-            assert false;
-            return null;
+    // the traceback prefers INS, then DEL, then EQL among the minimal moves
+    static int from(final int min, final int horizontal, final int vertical) {
+        if (min == horizontal) {
+            return Traceback.FROM_HORIZONTAL;
+        } else if (min == vertical) {
+            return Traceback.FROM_VERTICAL;
+        } else {
+            return Traceback.FROM_DIAGONAL;
         }
     }
 }
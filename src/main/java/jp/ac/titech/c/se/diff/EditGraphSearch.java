@@ -0,0 +1,299 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A* search over the edit graph from (0, 0) to (sourceSize, targetSize) without per-node objects.
+ * States are packed into long keys, the open list is a binary heap over primitive arrays,
+ * and the visited states live in an open-addressing table.
+ * <p>
+ * With snakes enabled, every move is followed along the diagonal for as long as EQL is available,
+ * as in Myers' algorithm, so that states are only created where the paths branch.
+ * Greedy diagonals keep the number of edits minimal, but they may resolve ties among edit scripts
+ * differently from the plain search, and they assume EQL never costs more than DEL plus INS.
+ */
+abstract class EditGraphSearch {
+    static final long UNAVAILABLE = -1;
+
+    static final byte FROM_NONE = 0;
+    static final byte FROM_INS = 1;
+    static final byte FROM_DEL = 2;
+    static final byte FROM_EQL = 3;
+
+    final int sourceSize, targetSize;
+    final long lineWeight;
+    final boolean snakes;
+
+    // visited states: key -> id
+    long[] slots;
+    int[] slotIds;
+    int mask;
+
+    // per-state data, indexed by id
+    long[] keys = new long[16];
+    long[] costs = new long[16];
+    byte[] froms = new byte[16];
+    // length of the diagonal run followed after the move into each state
+    int[] runs = new int[16];
+    boolean[] closed = new boolean[16];
+    int count;
+
+    // open list
+    long[] heapScores = new long[16];
+    long[] heapCosts = new long[16];
+    int[] heapIds = new int[16];
+    int heapSize;
+
+    EditGraphSearch(final int sourceSize, final int targetSize) {
+        this(sourceSize, targetSize, false);
+    }
+
+    EditGraphSearch(final int sourceSize, final int targetSize, final boolean snakes) {
+        this.sourceSize = sourceSize;
+        this.targetSize = targetSize;
+        this.lineWeight = lineWeight(sourceSize, targetSize);
+        this.snakes = snakes;
+        slots = new long[64];
+        slotIds = new int[64];
+        mask = slots.length - 1;
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Returns the weight of a line. The engines add the target index of each DEL to prefer DEL-INS over INS-DEL;
+     * these terms sum up to at most sourceSize * targetSize, so the weight is kept above it, and tie-breaking
+     * never outweighs a line as it does with the fixed int LINE_WEIGHT of the Hipster engines on large inputs.
+     */
+    static long lineWeight(final int sourceSize, final int targetSize) {
+        return Math.max(AStarDifferencer.LINE_WEIGHT, (long) sourceSize * targetSize + 1);
+    }
+
+    /**
+     * Returns the cost of the edge of the given type leaving (s, t), or {@link #UNAVAILABLE}.
+     */
+    abstract long weight(Chunk.Type op, int s, int t);
+
+    long estimate(final int s, final int t) {
+        return Math.max(sourceSize - s, targetSize - t) * lineWeight;
+    }
+
+    static long key(final int s, final int t) {
+        return ((long) s << 32) | t;
+    }
+
+    public List<Chunk> search() {
+        final long goal = key(sourceSize, targetSize);
+        final int run = snakes ? run(0, 0) : 0;
+        final int root = find(key(run, run));
+        final long rootCost = snakeCost(0, 0, run);
+        costs[root] = rootCost;
+        runs[root] = run;
+        push(root, rootCost, rootCost + estimate(run, run));
+        while (heapSize > 0) {
+            final int id = pop();
+            if (closed[id]) {
+                continue;
+            }
+            closed[id] = true;
+            final long k = keys[id];
+            if (k == goal) {
+                return path(goal);
+            }
+            final int s = (int) (k >>> 32);
+            final int t = (int) k;
+            final long cost = costs[id];
+            if (s < sourceSize && t < targetSize) {
+                relax(Chunk.Type.EQL, FROM_EQL, s, t, s + 1, t + 1, cost);
+            }
+            if (s < sourceSize) {
+                relax(Chunk.Type.DEL, FROM_DEL, s, t, s + 1, t, cost);
+            }
+            if (t < targetSize) {
+                relax(Chunk.Type.INS, FROM_INS, s, t, s, t + 1, cost);
+            }
+        }
+        throw new IllegalStateException("goal is unreachable");
+    }
+
+    private void relax(final Chunk.Type op, final byte from, final int s, final int t, final int ns, final int nt, final long cost) {
+        final long w = weight(op, s, t);
+        if (w == UNAVAILABLE) {
+            return;
+        }
+        final int run = snakes ? run(ns, nt) : 0;
+        final int id = find(key(ns + run, nt + run));
+        final long newCost = cost + w + snakeCost(ns, nt, run);
+        if (closed[id] || (froms[id] != FROM_NONE && costs[id] <= newCost)) {
+            return;
+        }
+        costs[id] = newCost;
+        froms[id] = from;
+        runs[id] = run;
+        push(id, newCost, newCost + estimate(ns + run, nt + run));
+    }
+
+    // the number of EQL edges available in a row from (s, t)
+    private int run(final int s, final int t) {
+        int n = 0;
+        while (s + n < sourceSize && t + n < targetSize && weight(Chunk.Type.EQL, s + n, t + n) != UNAVAILABLE) {
+            n++;
+        }
+        return n;
+    }
+
+    private long snakeCost(final int s, final int t, final int run) {
+        long cost = 0;
+        for (int n = 0; n < run; n++) {
+            cost += weight(Chunk.Type.EQL, s + n, t + n);
+        }
+        return cost;
+    }
+
+    private List<Chunk> path(final long goal) {
+        final List<Chunk> result = new ArrayList<>();
+        long k = goal;
+        while (true) {
+            final int id = find(k);
+            int s = (int) (k >>> 32);
+            int t = (int) k;
+            for (int n = 0; n < runs[id]; n++, s--, t--) {
+                result.add(new Chunk(Chunk.Type.EQL, s - 1, s, t - 1, t));
+            }
+            if (froms[id] == FROM_NONE) {
+                break;
+            }
+            switch (froms[id]) {
+                case FROM_INS -> {
+                    result.add(new Chunk(Chunk.Type.INS, s, s, t - 1, t));
+                    k = key(s, t - 1);
+                }
+                case FROM_DEL -> {
+                    result.add(new Chunk(Chunk.Type.DEL, s - 1, s, t, t));
+                    k = key(s - 1, t);
+                }
+                case FROM_EQL -> {
+                    result.add(new Chunk(Chunk.Type.EQL, s - 1, s, t - 1, t));
+                    k = key(s - 1, t - 1);
+                }
+                default -> throw new IllegalStateException();
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // returns the id of the given state, registering it if it is new
+    private int find(final long key) {
+        int i = (int) mix(key) & mask;
+        while (slots[i] != -1) {
+            if (slots[i] == key) {
+                return slotIds[i];
+            }
+            i = (i + 1) & mask;
+        }
+        final int id = count++;
+        if (id == keys.length) {
+            final int n = id * 2;
+            keys = Arrays.copyOf(keys, n);
+            costs = Arrays.copyOf(costs, n);
+            froms = Arrays.copyOf(froms, n);
+            runs = Arrays.copyOf(runs, n);
+            closed = Arrays.copyOf(closed, n);
+        }
+        keys[id] = key;
+        slots[i] = key;
+        slotIds[i] = id;
+        if (count * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        final long[] oldSlots = slots;
+        final int[] oldIds = slotIds;
+        slots = new long[oldSlots.length * 2];
+        slotIds = new int[oldSlots.length * 2];
+        mask = slots.length - 1;
+        Arrays.fill(slots, -1);
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] != -1) {
+                int i = (int) mix(oldSlots[j]) & mask;
+                while (slots[i] != -1) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = oldSlots[j];
+                slotIds[i] = oldIds[j];
+            }
+        }
+    }
+
+    static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    // ties are broken towards deeper states, which are closer to the goal
+    private boolean less(final int a, final int b) {
+        return heapScores[a] < heapScores[b] || (heapScores[a] == heapScores[b] && heapCosts[a] > heapCosts[b]);
+    }
+
+    private void push(final int id, final long cost, final long score) {
+        if (heapSize == heapIds.length) {
+            final int n = heapSize * 2;
+            heapScores = Arrays.copyOf(heapScores, n);
+            heapCosts = Arrays.copyOf(heapCosts, n);
+            heapIds = Arrays.copyOf(heapIds, n);
+        }
+        int i = heapSize++;
+        heapScores[i] = score;
+        heapCosts[i] = cost;
+        heapIds[i] = id;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private int pop() {
+        final int top = heapIds[0];
+        heapSize--;
+        if (heapSize > 0) {
+            swap(0, heapSize);
+            int i = 0;
+            while (true) {
+                final int l = 2 * i + 1;
+                if (l >= heapSize) {
+                    break;
+                }
+                final int r = l + 1;
+                final int c = r < heapSize && less(r, l) ? r : l;
+                if (!less(c, i)) {
+                    break;
+                }
+                swap(i, c);
+                i = c;
+            }
+        }
+        return top;
+    }
+
+    private void swap(final int a, final int b) {
+        final long score = heapScores[a];
+        heapScores[a] = heapScores[b];
+        heapScores[b] = score;
+        final long cost = heapCosts[a];
+        heapCosts[a] = heapCosts[b];
+        heapCosts[b] = cost;
+        final int id = heapIds[a];
+        heapIds[a] = heapIds[b];
+        heapIds[b] = id;
+    }
+}
@@ -0,0 +1,201 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongPredicate;
+
+/**
+ * A per-line path through the edit graph, stored as runs of EQL, DEL and INS lines in two parallel arrays.
+ * It reads the same per-line path as {@link Chunkase#degrade}, but takes space per run rather than per line.
+ * Adjacent runs always differ in type, so two scripts describe the same path exactly when their runs are equal;
+ * the hash of the runs is computed once while building, so hashing is O(1) and most unequal pairs differ in it.
+ */
+public final class EditScript {
+    private static final Chunk.Type[] TYPES = Chunk.Type.values();
+
+    // ordinals of Chunk.Type, and the number of lines of each run
+    private final byte[] types;
+    private final int[] lengths;
+    private final int size;
+    private final int hash;
+
+    private EditScript(final byte[] types, final int[] lengths, final int size, final int hash) {
+        this.types = types;
+        this.lengths = lengths;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    /**
+     * Encodes a diff as computed by a differencer: either one chunk per line, or JGit-style change regions
+     * with the equal lines left implicit. As with {@link Chunkase#degrade}, equal lines after the last chunk are not included.
+     */
+    public static EditScript of(final List<Chunk> diff) {
+        final Builder builder = new Builder();
+        int s = 0;
+        int t = 0;
+        for (final Chunk c : diff) {
+            if (c.type == Chunk.Type.EQL) {
+                builder.add(Chunk.Type.EQL, 1);
+                s++;
+                t++;
+            }
+            final int equal = Math.min(c.sourceStart - s, c.targetStart - t);
+            if (equal > 0) {
+                builder.add(Chunk.Type.EQL, equal);
+                s += equal;
+                t += equal;
+            }
+            if (c.sourceEnd > s) {
+                builder.add(Chunk.Type.DEL, c.sourceEnd - s);
+                s = c.sourceEnd;
+            }
+            if (c.targetEnd > t) {
+                builder.add(Chunk.Type.INS, c.targetEnd - t);
+                t = c.targetEnd;
+            }
+        }
+        return builder.build();
+    }
+
+    public static final class Builder {
+        private byte[] types = new byte[16];
+        private int[] lengths = new int[16];
+        private int runs;
+        private int size;
+        // hash of the runs before the last one, which may still grow
+        private int hash = 1;
+
+        public Builder add(final Chunk.Type type, final int length) {
+            if (length <= 0) {
+                return this;
+            }
+            size += length;
+            if (runs > 0 && types[runs - 1] == type.ordinal()) {
+                lengths[runs - 1] += length;
+                return this;
+            }
+            if (runs > 0) {
+                hash = fold(hash, types[runs - 1], lengths[runs - 1]);
+            }
+            if (runs == types.length) {
+                types = Arrays.copyOf(types, runs * 2);
+                lengths = Arrays.copyOf(lengths, runs * 2);
+            }
+            types[runs] = (byte) type.ordinal();
+            lengths[runs] = length;
+            runs++;
+            return this;
+        }
+
+        public EditScript build() {
+            final int h = runs > 0 ? fold(hash, types[runs - 1], lengths[runs - 1]) : hash;
+            return new EditScript(Arrays.copyOf(types, runs), Arrays.copyOf(lengths, runs), size, h);
+        }
+    }
+
+    private static int fold(final int hash, final byte type, final int length) {
+        return 31 * (31 * hash + type) + length;
+    }
+
+    /**
+     * Returns the number of lines, which is the number of chunks of the per-line path.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int runs() {
+        return lengths.length;
+    }
+
+    public Chunk.Type type(final int run) {
+        return TYPES[types[run]];
+    }
+
+    public int length(final int run) {
+        return lengths[run];
+    }
+
+    public interface LineVisitor {
+        void visit(Chunk.Type type, int sourceStart, int targetStart);
+    }
+
+    /**
+     * Visits the lines in order, without creating chunks.
+     */
+    public void forEachLine(final LineVisitor visitor) {
+        int s = 0;
+        int t = 0;
+        for (int r = 0; r < lengths.length; r++) {
+            final Chunk.Type type = TYPES[types[r]];
+            for (int n = 0; n < lengths[r]; n++) {
+                visitor.visit(type, s, t);
+                if (type != Chunk.Type.INS) {
+                    s++;
+                }
+                if (type != Chunk.Type.DEL) {
+                    t++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the lines whose key (see {@link CorrectionSet#pack}) satisfies the predicate.
+     */
+    public int countLines(final LongPredicate keys) {
+        final int[] count = new int[1];
+        forEachLine((type, s, t) -> {
+            if (keys.test(CorrectionSet.pack(type, s, t))) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns a view of the per-line path, creating each chunk as it is reached.
+     */
+    public Iterable<Chunk> lines() {
+        return () -> new Iterator<>() {
+            int run, offset, s, t;
+
+            @Override
+            public boolean hasNext() {
+                return run < lengths.length;
+            }
+
+            @Override
+            public Chunk next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Chunk.Type type = TYPES[types[run]];
+                final Chunk c = switch (type) {
+                    case DEL -> new Chunk(type, s, ++s, t, t);
+                    case INS -> new Chunk(type, s, s, t, ++t);
+                    default -> new Chunk(type, s, ++s, t, ++t);
+                };
+                if (++offset == lengths[run]) {
+                    run++;
+                    offset = 0;
+                }
+                return c;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof EditScript other && hash == other.hash && size == other.size
+                && Arrays.equals(types, other.types) && Arrays.equals(lengths, other.lengths);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,51 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The costs and heuristic of {@link AStarDifferencer}, searched with {@link EditGraphSearch} instead of Hipster.
+ * The diffs cost the same, but among equally cheap diffs the one returned may differ: the heap breaks
+ * ties towards deeper states, while Hipster leaves them to the order of its priority queue.
+ * On large inputs, the diffs may also have fewer edits, as the line weight grows with the input
+ * (see {@link EditGraphSearch#lineWeight}).
+ */
+public final class FastAStarDifferencer<T> implements Differencer<T>, TokenDifferencer {
+
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public FastAStarDifferencer() {
+        this(null, null);
+    }
+
+    public FastAStarDifferencer(final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        return search(source, target).search();
+    }
+
+    // the search before it runs, so that its states can be counted
+    static EditGraphSearch search(final int[] source, final int[] target) {
+        return new EditGraphSearch(source.length, target.length) {
+            @Override
+            long weight(final Chunk.Type op, final int s, final int t) {
+                return switch (op) {
+                    case EQL -> source[s] == target[t] ? lineWeight : UNAVAILABLE;
+                    // control the order of operations that prefers DEL-INS rather than INS-DEL
+                    case DEL -> lineWeight + t;
+                    default -> lineWeight;
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The costs of {@link CorrectionDynamicProgrammingDifferencer}, searched with {@link EditGraphSearch}, so that the diffs
+ * cost as much as those of the DP; ties among equally cheap diffs may be broken differently.
+ * The Hipster search of {@link CorrectionAstarDifferencer} adds CORRECTION_WEIGHT to a corrected edge instead, so
+ * its diffs can cost more under the DP weights when they cross corrected or mismatched edges.
+ * Costs are computed in long, so that the line weight times CORRECTION_WEIGHT does not overflow on large inputs.
+ */
+public class FastCorrectionAstarDifferencer<T> extends CorrectionAstarDifferencer<T> {
+
+    public FastCorrectionAstarDifferencer(final List<T> source, final List<T> target) {
+        super(source, target);
+    }
+
+    public FastCorrectionAstarDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash, final List<T> source, final List<T> target) {
+        super(equality, hash, source, target);
+    }
+
+    public FastCorrectionAstarDifferencer(final int[] source, final int[] target) {
+        super(source, target);
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final CorrectionSet correction) {
+        return new EditGraphSearch(source.length, target.length) {
+            // a DP weight w becomes lineWeight * (w + the number of lines the edge passes): every path passes all
+            // lines, so paths keep their order, and no edge is cheaper than twice the line weight per step of estimate()
+            @Override
+            long weight(final Chunk.Type op, final int s, final int t) {
+                final boolean corrected = correction.contains(op, s, t);
+                return switch (op) {
+                    case EQL -> lineWeight * ((corrected || source[s] != target[t] ? CORRECTION_WEIGHT : 0) + 2);
+                    case INS -> lineWeight * ((corrected ? CORRECTION_WEIGHT : 1) + 1);
+                    // control the order of operations that prefers DEL-INS rather than INS-DEL
+                    case DEL -> lineWeight * ((corrected ? CORRECTION_WEIGHT : 1) + 1) + t;
+                    default -> throw new IllegalStateException();
+                };
+            }
+
+            @Override
+            long estimate(final int s, final int t) {
+                return 2 * super.estimate(s, t);
+            }
+        }.search();
+    }
+}
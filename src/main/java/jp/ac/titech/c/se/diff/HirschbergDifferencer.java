@@ -0,0 +1,137 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A linear-space variant of {@link DynamicProgrammingDifferencer}.
+ * It uses the same cost model and the same traceback priorities (INS, DEL, EQL),
+ * so that it yields exactly the same chunks, but keeps only two rows of costs at a time.
+ */
+public final class HirschbergDifferencer<T> implements Differencer<T>, TokenDifferencer {
+    // subproblems up to this number of cells are solved with a plain traceback matrix
+    static final int BASE_CELLS = 1 << 12;
+
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public HirschbergDifferencer() {
+        this(null, null);
+    }
+
+    public HirschbergDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash) {
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        final Solver solver = new Solver(source, target);
+        solver.split(0, 0, source.length, target.length);
+        return solver.result;
+    }
+
+    static class Solver {
+        final int[] source, target;
+        final List<Chunk> result = new ArrayList<>();
+        int[] prevCost, curCost, prevEntry, curEntry;
+
+        Solver(final int[] source, final int[] target) {
+            this.source = source;
+            this.target = target;
+            prevCost = new int[target.length + 1];
+            curCost = new int[target.length + 1];
+            prevEntry = new int[target.length + 1];
+            curEntry = new int[target.length + 1];
+        }
+
+        /**
+         * Appends the path from (i0, j0) to (i1, j1).
+         * Both ends lie on the path that the full matrix would trace back, and the local costs
+         * of the rectangle lead to the same choices as the global ones along that path.
+         */
+        void split(final int i0, final int j0, final int i1, final int j1) {
+            final int h = i1 - i0;
+            final int w = j1 - j0;
+            if (h <= 1 || w <= 1 || (long) (h + 1) * (w + 1) <= BASE_CELLS) {
+                solve(i0, j0, i1, j1);
+                return;
+            }
+
+            // forward pass; below the middle row, each cell also carries the column
+            // at which its traceback enters the middle row
+            final int mid = (i0 + i1) >>> 1;
+            for (int j = 0; j <= w; j++) {
+                curCost[j] = j;
+            }
+            for (int i = i0 + 1; i <= i1; i++) {
+                swapRows();
+                curCost[0] = prevCost[0] + 1;
+                curEntry[0] = prevEntry[0];
+                final int s = source[i - 1];
+                for (int j = 1; j <= w; j++) {
+                    final int diagonal = prevCost[j - 1] + (s == target[j0 + j - 1] ? 0 : 100);
+                    final int vertical = prevCost[j] + 1;
+                    final int horizontal = curCost[j - 1] + 1;
+                    final int min = Math.min(diagonal, Math.min(horizontal, vertical));
+                    curCost[j] = min;
+                    if (min == horizontal) {
+                        curEntry[j] = curEntry[j - 1];
+                    } else if (min == vertical) {
+                        curEntry[j] = prevEntry[j];
+                    } else {
+                        curEntry[j] = prevEntry[j - 1];
+                    }
+                }
+                if (i == mid) {
+                    for (int j = 0; j <= w; j++) {
+                        curEntry[j] = j;
+                    }
+                }
+            }
+            final int j = j0 + curEntry[w];
+            split(i0, j0, mid, j);
+            split(mid, j, i1, j1);
+        }
+
+        void swapRows() {
+            final int[] cost = prevCost;
+            prevCost = curCost;
+            curCost = cost;
+            final int[] entry = prevEntry;
+            prevEntry = curEntry;
+            curEntry = entry;
+        }
+
+        void solve(final int i0, final int j0, final int i1, final int j1) {
+            final int h = i1 - i0;
+            final int w = j1 - j0;
+            final Traceback traceback = new Traceback(h + 1, w + 1);
+            for (int j = 0; j <= w; j++) {
+                curCost[j] = j;
+                traceback.set(0, j, Traceback.FROM_HORIZONTAL);
+            }
+            for (int i = 1; i <= h; i++) {
+                swapRows();
+                curCost[0] = prevCost[0] + 1;
+                traceback.set(i, 0, Traceback.FROM_VERTICAL);
+                final int s = source[i0 + i - 1];
+                for (int j = 1; j <= w; j++) {
+                    final int diagonal = prevCost[j - 1] + (s == target[j0 + j - 1] ? 0 : 100);
+                    final int vertical = prevCost[j] + 1;
+                    final int horizontal = curCost[j - 1] + 1;
+                    final int min = Math.min(diagonal, Math.min(horizontal, vertical));
+                    curCost[j] = min;
+                    traceback.set(i, j, DynamicProgrammingDifferencer.from(min, horizontal, vertical));
+                }
+            }
+            result.addAll(traceback.findPath(i0, j0));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package jp.ac.titech.c.se.diff;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Diffs the modified files of every commit in a range of a local repository.
+ * Blobs are read from the object database on the walking thread, and each commit is compared with its first parent,
+ * so a merge shows what it brought in from the other branches. Renamed and copied files are detected as {@code git diff} does,
+ * and diffed against the file they came from; added and deleted files are skipped.
+ * The workers split, intern and diff each pair of blobs on their own, as {@link MappedText} over the blob bytes,
+ * so only the printed lines are decoded.
+ * The revisions of a path share one interner, so that its lines keep their ids along the history;
+ * the interners of the paths modified least recently are dropped beyond {@link #MAX_INTERNERS}.
+ */
+@Command(name = "history", description = "Diff the files modified, renamed or copied by each commit of a range in a Git repository")
+public final class HistoryCommand implements Callable<Integer> {
+    // number of paths whose interners are kept, each holding the blobs of its representative lines
+    static final int MAX_INTERNERS = 1024;
+
+    @ParentCommand
+    App app;
+
+    @Spec
+    CommandSpec spec;
+
+    // not -j, which sets the search threads of each diff on the main command
+    @Option(names = {"-w", "--workers"}, paramLabel = "<n>",
+            description = "number of files diffed at once (default: ${DEFAULT-VALUE})")
+    int workers = Runtime.getRuntime().availableProcessors();
+
+    @Parameters(index = "0", description = "Repository")
+    Path repository;
+
+    @Parameters(index = "1", description = "Commit range <from>..<to>, or <to> for all its history")
+    String range;
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        if (app.threads != 1) {
+            throw new ParameterException(spec.commandLine(), "-j only applies to --search; use --workers to diff files at once");
+        }
+        final PrintWriter out = App.openOutput();
+        final long start = System.nanoTime();
+        // only used by the walking thread; an interner is shared by the workers diffing revisions of its path
+        final Map<String, MappedText.Interner> interners = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, MappedText.Interner> eldest) {
+                return size() > MAX_INTERNERS;
+            }
+        };
+        int files = 0;
+        final int failures;
+        try (final Git git = Git.open(repository.toFile());
+             final ObjectReader reader = git.getRepository().newObjectReader();
+             final RevWalk walk = new RevWalk(reader);
+             final OrderedPool pool = new OrderedPool(workers, out)) {
+            markRange(git.getRepository(), walk);
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+            for (final RevCommit commit : walk) {
+                if (commit.getParentCount() == 0) {
+                    continue;
+                }
+                final RevCommit parent = commit.getParent(0);
+                walk.parseHeaders(parent);
+                for (final DiffEntry entry : scan(git.getRepository(), reader, parent, commit)) {
+                    if (!diffed(entry)) {
+                        continue;
+                    }
+                    final byte[] oldBytes = read(reader, entry.getOldId().toObjectId());
+                    final byte[] newBytes = read(reader, entry.getNewId().toObjectId());
+                    if (RawText.isBinary(oldBytes) || RawText.isBinary(newBytes)) {
+                        continue;
+                    }
+                    final String commitName = commit.abbreviate(10).name();
+                    final String path = entry.getNewPath();
+                    final MappedText.Interner interner = interners.computeIfAbsent(path, k -> new MappedText.Interner());
+                    pool.submit(() -> run(commitName, path, interner, oldBytes, newBytes));
+                    files++;
+                }
+            }
+            failures = pool.finish();
+        }
+        System.err.printf("%d files, %d failed, %.1f ms%n", files, failures, (System.nanoTime() - start) / 1e6);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private void markRange(final Repository repo, final RevWalk walk) throws IOException {
+        final int dots = range.indexOf("..");
+        final String from = dots < 0 ? null : range.substring(0, dots);
+        final String to = dots < 0 ? range : range.substring(dots + 2);
+        walk.markStart(walk.parseCommit(resolve(repo, to)));
+        if (from != null) {
+            walk.markUninteresting(walk.parseCommit(resolve(repo, from)));
+        }
+    }
+
+    private ObjectId resolve(final Repository repo, final String revision) throws IOException {
+        final ObjectId id = repo.resolve(revision);
+        if (id == null) {
+            throw new ParameterException(spec.commandLine(), "Unknown revision: " + revision);
+        }
+        return id;
+    }
+
+    private static List<DiffEntry> scan(final Repository repo, final ObjectReader reader,
+                                        final RevCommit parent, final RevCommit commit) throws IOException {
+        try (final TreeWalk tw = new TreeWalk(reader)) {
+            tw.setRecursive(true);
+            tw.setFilter(TreeFilter.ANY_DIFF);
+            tw.addTree(parent.getTree());
+            tw.addTree(commit.getTree());
+            final RenameDetector renames = new RenameDetector(reader, repo.getConfig().get(DiffConfig.KEY));
+            renames.addAll(DiffEntry.scan(tw));
+            return renames.compute();
+        }
+    }
+
+    // modified files, and renamed or copied files whose content changed on the way
+    private static boolean diffed(final DiffEntry entry) {
+        return switch (entry.getChangeType()) {
+            case MODIFY -> true;
+            case RENAME, COPY -> !entry.getOldId().equals(entry.getNewId());
+            default -> false;
+        };
+    }
+
+    private static byte[] read(final ObjectReader reader, final ObjectId id) throws IOException {
+        return reader.open(id, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    private OrderedPool.Result run(final String commitName, final String path, final MappedText.Interner interner, final byte[] oldBytes, final byte[] newBytes) {
+        final StringWriter buffer = new StringWriter();
+        final PrintWriter out = new PrintWriter(buffer);
+        final String header = commitName + " " + path;
+        try {
+            final MappedText source = new MappedText(ByteBuffer.wrap(oldBytes));
+            final MappedText target = new MappedText(ByteBuffer.wrap(newBytes));
+            final int[] sourceIds;
+            final int[] targetIds;
+            synchronized (interner) {
+                sourceIds = interner.intern(source);
+                targetIds = interner.intern(target);
+            }
+            final long start = System.nanoTime();
+            final List<Chunk> diff = app.getTokenDifferencer().computeDiff(sourceIds, targetIds);
+            final long elapsed = System.nanoTime() - start;
+            out.printf("### %s %.3f ms%n", header, elapsed / 1e6);
+            app.render(out, "a/" + path, "b/" + path, diff, source, target);
+            out.flush();
+            return new OrderedPool.Result(buffer.toString(), false);
+        } catch (final RuntimeException e) {
+            return new OrderedPool.Result(String.format("### %s failed: %s%n", header, e), true);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+/**
+ * Runs a JGit diff algorithm (Myers or histogram) while avoiding corrected edges.
+ * For Myers, the comparator refuses to match the line pairs of corrected EQL edges, so the algorithm works around them by itself.
+ * Histogram diff cannot take such a comparator, since it matches a line against the first of its equal lines only
+ * and then takes the other occurrences as equal too.
+ * Either can still place a corrected edge (normalization slides edits without asking about pairs,
+ * and a replaced region always becomes DELs followed by INSs), so each such chunk is then repaired:
+ * the stretch of the path around it is recomputed by {@link CorrectionDynamicProgrammingDifferencer},
+ * widening the stretch until it avoids both corrected edges and diagonals between different lines, or it covers the whole input.
+ * Only the repaired stretches cost O(width * height); the rest stays O(ND).
+ * A stretch is not widened beyond {@link #MAX_REPAIR_CELLS}: the whole input is then diffed by
+ * {@link FastCorrectionAstarDifferencer} instead, which honours every corrected edge and only stores the states it reaches.
+ * That is about O((N + M) D) states on near-identical inputs, but can still approach N * M behind a large block of
+ * replaced lines, in time though not in dense memory.
+ */
+public final class JGitCorrectionDifferencer<T> implements CorrectionDifferencer<T> {
+
+    // the largest stretch repaired by dynamic programming, in cells
+    static final long MAX_REPAIR_CELLS = 1L << 22;
+
+    final DiffAlgorithm algorithm;
+    final int[] source, target;
+    final long maxRepairCells;
+
+    public JGitCorrectionDifferencer(final DiffAlgorithm algorithm, final List<T> source, final List<T> target) {
+        this(algorithm, new LineInterner<>(), source, target);
+    }
+
+    public JGitCorrectionDifferencer(final DiffAlgorithm algorithm, BiPredicate<T, T> equality, ToIntFunction<? super T> hash, final List<T> source, final List<T> target) {
+        this(algorithm, new LineInterner<>(equality, hash), source, target);
+    }
+
+    private JGitCorrectionDifferencer(final DiffAlgorithm algorithm, final LineInterner<T> interner, final List<T> source, final List<T> target) {
+        this(algorithm, interner.intern(source), interner.intern(target));
+    }
+
+    public JGitCorrectionDifferencer(final DiffAlgorithm algorithm, final int[] source, final int[] target) {
+        this(algorithm, source, target, MAX_REPAIR_CELLS);
+    }
+
+    JGitCorrectionDifferencer(final DiffAlgorithm algorithm, final int[] source, final int[] target, final long maxRepairCells) {
+        this.algorithm = algorithm;
+        this.source = source;
+        this.target = target;
+        this.maxRepairCells = maxRepairCells;
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final CorrectionSet correction) {
+        final JGitDifferencer.IntSeq a = new JGitDifferencer.IntSeq(source);
+        final JGitDifferencer.IntSeq b = new JGitDifferencer.IntSeq(target);
+        final SequenceComparator<JGitDifferencer.IntSeq> cmp = correction.isEmpty() || algorithm instanceof HistogramDiff
+                ? JGitDifferencer.IntSeqComparator.INSTANCE
+                : new CorrectedComparator(a, correction);
+        final List<Chunk> path = Chunkase.complete(JGitDifferencer.toChunkList(algorithm.diff(cmp, a, b)), source.length, target.length);
+        return correction.isEmpty() ? path : repair(path, correction);
+    }
+
+    /**
+     * Rejects the pairs of corrected EQL edges. Lines of the same sequence are compared as usual.
+     */
+    static final class CorrectedComparator extends SequenceComparator<JGitDifferencer.IntSeq> {
+        final JGitDifferencer.IntSeq source;
+        final CorrectionSet correction;
+
+        CorrectedComparator(final JGitDifferencer.IntSeq source, final CorrectionSet correction) {
+            this.source = source;
+            this.correction = correction;
+        }
+
+        @Override
+        public boolean equals(final JGitDifferencer.IntSeq a, final int ai, final JGitDifferencer.IntSeq b, final int bi) {
+            if (a.tokens[ai] != b.tokens[bi]) {
+                return false;
+            }
+            if (a == b) {
+                return true;
+            }
+            return a == source ? !correction.contains(Chunk.Type.EQL, ai, bi) : !correction.contains(Chunk.Type.EQL, bi, ai);
+        }
+
+        @Override
+        public int hash(final JGitDifferencer.IntSeq seq, final int ptr) {
+            return seq.tokens[ptr];
+        }
+    }
+
+    private List<Chunk> repair(final List<Chunk> path, final CorrectionSet correction) {
+        List<Chunk> result = path;
+        int k = 0;
+        while (k < result.size()) {
+            if (!correction.contains(result.get(k))) {
+                k++;
+                continue;
+            }
+            // start with the change region around the chunk
+            int lo = k;
+            while (lo > 0 && result.get(lo - 1).type != Chunk.Type.EQL) {
+                lo--;
+            }
+            int hi = k + 1;
+            while (hi < result.size() && result.get(hi).type != Chunk.Type.EQL) {
+                hi++;
+            }
+            List<Chunk> stretch;
+            while (true) {
+                if (cells(result.get(lo), result.get(hi - 1)) > maxRepairCells) {
+                    return new FastCorrectionAstarDifferencer<T>(source, target).computeDiff(correction);
+                }
+                stretch = recompute(result.get(lo), result.get(hi - 1), correction);
+                if ((lo == 0 && hi == result.size()) || stretch.stream().noneMatch(c -> penalized(c, correction))) {
+                    break;
+                }
+                final int width = hi - lo;
+                lo = Math.max(0, lo - width);
+                hi = Math.min(result.size(), hi + width);
+            }
+            final List<Chunk> next = new ArrayList<>(result.size() - (hi - lo) + stretch.size());
+            next.addAll(result.subList(0, lo));
+            next.addAll(stretch);
+            next.addAll(result.subList(hi, result.size()));
+            result = next;
+            k = lo + stretch.size();
+        }
+        return result;
+    }
+
+    // a corrected edge, or a diagonal between different lines, which the dynamic programming falls back on
+    private boolean penalized(final Chunk c, final CorrectionSet correction) {
+        return correction.contains(c) || (c.type == Chunk.Type.EQL && source[c.sourceStart] != target[c.targetStart]);
+    }
+
+    // the number of cells of the rectangle from the start of the first chunk to the end of the last one
+    private static long cells(final Chunk first, final Chunk last) {
+        return (long) (last.sourceEnd - first.sourceStart + 1) * (last.targetEnd - first.targetStart + 1);
+    }
+
+    // diffs the rectangle from the start of the first chunk to the end of the last one
+    private List<Chunk> recompute(final Chunk first, final Chunk last, final CorrectionSet correction) {
+        final int s0 = first.sourceStart, s1 = last.sourceEnd;
+        final int t0 = first.targetStart, t1 = last.targetEnd;
+        final List<Chunk> local = new ArrayList<>();
+        for (final Chunk c : correction.toList()) {
+            if (s0 <= c.sourceStart && c.sourceEnd <= s1 && t0 <= c.targetStart && c.targetEnd <= t1) {
+                local.add(new Chunk(c.type, c.sourceStart - s0, c.sourceEnd - s0, c.targetStart - t0, c.targetEnd - t0));
+            }
+        }
+        final List<Chunk> diff = new CorrectionDynamicProgrammingDifferencer<T>(Arrays.copyOfRange(source, s0, s1), Arrays.copyOfRange(target, t0, t1))
+                .computeDiff(local);
+        final List<Chunk> result = new ArrayList<>(diff.size());
+        for (final Chunk c : diff) {
+            result.add(new Chunk(c.type, c.sourceStart + s0, c.sourceEnd + s0, c.targetStart + t0, c.targetEnd + t0));
+        }
+        return result;
+    }
+}
@@ -6,20 +6,32 @@ import java.util.List;
 import org.eclipse.jgit.diff.*;
 
 public interface JGitDifferencer {
-    class Myers<T> implements Differencer<T> {
+    class Myers<T> implements Differencer<T>, TokenDifferencer {
         @Override
         public List<Chunk> computeDiff(List<T> source, List<T> target) {
             EditList edits = MyersDiff.INSTANCE.diff(new SeqComparator<>(), new Seq<>(source), new Seq<>(target));
             return toChunkList(edits);
         }
+
+        @Override
+        public List<Chunk> computeDiff(int[] source, int[] target) {
+            EditList edits = MyersDiff.INSTANCE.diff(IntSeqComparator.INSTANCE, new IntSeq(source), new IntSeq(target));
+            return toChunkList(edits);
+        }
     }
 
-    class Histogram<T> implements Differencer<T> {
+    class Histogram<T> implements Differencer<T>, TokenDifferencer {
         @Override
         public List<Chunk> computeDiff(List<T> source, List<T> target) {
             EditList edits = new HistogramDiff().diff(new SeqComparator<>(), new Seq<>(source), new Seq<>(target));
             return toChunkList(edits);
         }
+
+        @Override
+        public List<Chunk> computeDiff(int[] source, int[] target) {
+            EditList edits = new HistogramDiff().diff(IntSeqComparator.INSTANCE, new IntSeq(source), new IntSeq(target));
+            return toChunkList(edits);
+        }
     }
 
     static List<Chunk> toChunkList(EditList edits) {
@@ -62,4 +74,31 @@ public interface JGitDifferencer {
             return list.size();
         }
     }
+
+    class IntSeqComparator extends SequenceComparator<IntSeq> {
+        static final IntSeqComparator INSTANCE = new IntSeqComparator();
+
+        @Override
+        public boolean equals(IntSeq a, int ai, IntSeq b, int bi) {
+            return a.tokens[ai] == b.tokens[bi];
+        }
+
+        @Override
+        public int hash(IntSeq seq, int ptr) {
+            return seq.tokens[ptr];
+        }
+    }
+
+    class IntSeq extends Sequence {
+        final int[] tokens;
+
+        public IntSeq(int[] tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public int size() {
+            return tokens.length;
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Maps equal lines to dense int IDs, so that differencers compare ints in their inner loops.
+ * Share one interner between the source and the target of a diff.
+ */
+public final class LineInterner<T> {
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+    private final Map<T, Integer> ids = new HashMap<>();
+    // IDs of the representatives by their hash, for a custom equality
+    private final Map<Integer, List<Integer>> buckets = new HashMap<>();
+    private final List<T> representatives = new ArrayList<>();
+
+    public LineInterner() {
+        this(null, null);
+    }
+
+    /**
+     * @param equality an equivalence over lines, or null to use equals/hashCode.
+     * @param hash     a hash consistent with the equality: lines it finds equal must get the same hash.
+     *                 A new line is only compared with the representatives of its hash, not with all of them.
+     */
+    public LineInterner(final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
+        if (equality != null && hash == null) {
+            throw new IllegalArgumentException("a custom equality needs a hash");
+        }
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    public int intern(final T line) {
+        if (equality == null) {
+            return ids.computeIfAbsent(line, k -> ids.size());
+        }
+        final List<Integer> bucket = buckets.computeIfAbsent(hash.applyAsInt(line), k -> new ArrayList<>(1));
+        for (final int id : bucket) {
+            if (equality.test(representatives.get(id), line)) {
+                return id;
+            }
+        }
+        final int id = representatives.size();
+        representatives.add(line);
+        bucket.add(id);
+        return id;
+    }
+
+    public int[] intern(final List<T> lines) {
+        final int[] result = new int[lines.size()];
+        int i = 0;
+        for (final T line : lines) {
+            result[i++] = intern(line);
+        }
+        return result;
+    }
+
+    public int size() {
+        return equality == null ? ids.size() : representatives.size();
+    }
+}
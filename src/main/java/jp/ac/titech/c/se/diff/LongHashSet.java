@@ -0,0 +1,65 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative longs in an open-addressing table.
+ */
+final class LongHashSet {
+    private static final long EMPTY = -1;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+
+    LongHashSet(final int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new long[capacity];
+        mask = capacity - 1;
+        Arrays.fill(slots, EMPTY);
+    }
+
+    boolean add(final long key) {
+        int i = slot(slots, mask, key);
+        if (slots[i] == key) {
+            return false;
+        }
+        slots[i] = key;
+        if (++size * 2 > slots.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    boolean contains(final long key) {
+        return slots[slot(slots, mask, key)] == key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // the slot holding the key, or the empty slot where it would go
+    private static int slot(final long[] slots, final int mask, final long key) {
+        int i = (int) EditGraphSearch.mix(key) & mask;
+        while (slots[i] != EMPTY && slots[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void rehash() {
+        final long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = slots.length - 1;
+        Arrays.fill(slots, EMPTY);
+        for (final long key : old) {
+            if (key != EMPTY) {
+                slots[slot(slots, mask, key)] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package jp.ac.titech.c.se.diff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * The lines of a memory-mapped file, kept as byte ranges.
+ * Lines are split as in Files.readAllLines, at "\n", "\r" or "\r\n".
+ * A line is decoded from UTF-8 only when it is read as a String, with malformed bytes replaced;
+ * hashing and comparison work on the raw bytes.
+ * As in GNU diff, a last line without a terminator only equals another such line, so that a diff
+ * between files that differ in the final newline still has a hunk to carry it.
+ * <p>
+ * A mapping is only released when its buffer is garbage collected, so callers that read many files in turn
+ * should wrap their bytes instead of mapping them.
+ */
+public final class MappedText extends AbstractList<String> {
+    private final ByteBuffer content;
+    // starts[i] is the offset of line i; starts[size] is the end of the content
+    private final int[] starts;
+    // whether the last line ends with a terminator (true for an empty text)
+    private final boolean terminated;
+
+    MappedText(final ByteBuffer content) {
+        this.content = content;
+        this.starts = index(content);
+        final int limit = content.limit();
+        this.terminated = limit == 0 || content.get(limit - 1) == '\n' || content.get(limit - 1) == '\r';
+    }
+
+    public static MappedText read(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Too large to map: " + path);
+            }
+            return new MappedText(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private static int[] index(final ByteBuffer content) {
+        final int limit = content.limit();
+        int[] starts = new int[Math.max(limit / 32, 16)];
+        int n = 0;
+        int i = 0;
+        while (i < limit) {
+            if (n + 1 >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[n++] = i;
+            while (i < limit) {
+                final byte b = content.get(i++);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == '\r') {
+                    if (i < limit && content.get(i) == '\n') {
+                        i++;
+                    }
+                    break;
+                }
+            }
+        }
+        starts[n] = limit;
+        return Arrays.copyOf(starts, n + 1);
+    }
+
+    @Override
+    public int size() {
+        return starts.length - 1;
+    }
+
+    public boolean endsWithNewline() {
+        return terminated;
+    }
+
+    private boolean terminated(final int line) {
+        return terminated || line < size() - 1;
+    }
+
+    int start(final int line) {
+        return starts[line];
+    }
+
+    // the end of the line, excluding its terminator
+    int end(final int line) {
+        final int start = starts[line];
+        int end = starts[line + 1];
+        // a '\r' inside a line would have ended it, so any trailing '\r' belongs to the terminator
+        if (end > start && content.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && content.get(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    @Override
+    public String get(final int line) {
+        final int start = start(line);
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(content.slice(start, end(line) - start))
+                    .toString();
+        } catch (final CharacterCodingException e) {
+            throw new IllegalStateException(e); // never thrown with REPLACE
+        }
+    }
+
+    public int hash(final int line) {
+        int h = terminated(line) ? 0 : 1;
+        for (int i = start(line), end = end(line); i < end; i++) {
+            h = 31 * h + content.get(i);
+        }
+        return h;
+    }
+
+    public boolean lineEquals(final int line, final MappedText other, final int otherLine) {
+        final int start = start(line);
+        final int length = end(line) - start;
+        final int otherStart = other.start(otherLine);
+        return other.end(otherLine) - otherStart == length
+                && terminated(line) == other.terminated(otherLine)
+                && content.slice(start, length).equals(other.content.slice(otherStart, length));
+    }
+
+    /**
+     * Assigns the same id to lines with the same bytes, across all interned texts.
+     */
+    public static final class Interner {
+        // representative line of each id
+        private MappedText[] texts = new MappedText[16];
+        private int[] lines = new int[16];
+        private int[] hashes = new int[16];
+        private int size;
+        // id + 1 of each slot, or 0 if the slot is empty
+        private int[] table = new int[32];
+
+        public int[] intern(final MappedText text) {
+            final int[] ids = new int[text.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = intern(text, i);
+            }
+            return ids;
+        }
+
+        public int intern(final MappedText text, final int line) {
+            final int hash = text.hash(line);
+            int slot = slot(hash, table.length);
+            while (table[slot] != 0) {
+                final int id = table[slot] - 1;
+                if (hashes[id] == hash && texts[id].lineEquals(lines[id], text, line)) {
+                    return id;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+            final int id = size++;
+            if (id == texts.length) {
+                texts = Arrays.copyOf(texts, id * 2);
+                lines = Arrays.copyOf(lines, id * 2);
+                hashes = Arrays.copyOf(hashes, id * 2);
+            }
+            texts[id] = text;
+            lines[id] = line;
+            hashes[id] = hash;
+            table[slot] = id + 1;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private static int slot(final int hash, final int length) {
+            return (int) EditGraphSearch.mix(hash) & (length - 1);
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            for (int id = 0; id < size; id++) {
+                int slot = slot(hashes[id], table.length);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = id + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package jp.ac.titech.c.se.diff;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per-phase timings of a run, printed as JSON with --stats.
+ * The counters of differencer calls can be updated from several threads.
+ */
+public final class Metrics {
+    // wall time and bytes allocated by all threads, per phase. The bytes are read from the live threads,
+    // so a thread ending within a phase is only counted through the tasks it recorded with measure();
+    // for other such threads, e.g. common pool workers retired while idle, the figure is a lower bound.
+    record Phase(long nanos, long allocatedBytes) {}
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    // search
+    long expansions;
+    long applies;
+    long pruned;
+    long openPeak;
+    // paths computed ahead by the pool with -j, and how many of them apply() took or had to compute itself;
+    // without -j, every path is computed in apply()
+    long prefetched;
+    long prefetchTaken;
+    long prefetchMissed;
+
+    // differencer calls
+    final LongAdder diffCalls = new LongAdder();
+    final LongAdder diffNanos = new LongAdder();
+    final LongAccumulator diffMaxNanos = new LongAccumulator(Math::max, 0);
+    // bytes allocated by tasks run with measure(), on threads that may end before the phase does
+    private final LongAdder taskBytes = new LongAdder();
+
+    /**
+     * Starts a phase, which is recorded when the returned timer is closed.
+     */
+    public Timer phase(final String name) {
+        return new Timer(name);
+    }
+
+    public final class Timer implements AutoCloseable {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startBytes = allocatedBytes();
+        private final long startTaskBytes = taskBytes.sum();
+
+        private Timer(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            final long bytes = startBytes < 0 ? -1 : allocatedBytes() - startBytes + taskBytes.sum() - startTaskBytes;
+            phases.put(name, new Phase(System.nanoTime() - startNanos, bytes));
+        }
+    }
+
+    void recordDiff(final long nanos) {
+        diffCalls.increment();
+        diffNanos.add(nanos);
+        diffMaxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Runs a task on a pool thread, and records what it allocates. The threads running such tasks
+     * must not outlive the phase, or what they allocated would also be read from them when it ends.
+     */
+    public <V> V measure(final Callable<V> task) throws Exception {
+        final com.sun.management.ThreadMXBean bean = threadBean();
+        final long start = bean != null ? bean.getCurrentThreadAllocatedBytes() : -1;
+        try {
+            return task.call();
+        } finally {
+            if (start >= 0) {
+                taskBytes.add(bean.getCurrentThreadAllocatedBytes() - start);
+            }
+        }
+    }
+
+    // the bean telling the bytes allocated by threads, or null if the JVM does not tell
+    private static com.sun.management.ThreadMXBean threadBean() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean sun) || !sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        return sun;
+    }
+
+    // bytes allocated so far by the live threads, or -1 if the JVM does not tell
+    static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean sun = threadBean();
+        if (sun == null) {
+            return -1;
+        }
+        long total = 0;
+        for (final long bytes : sun.getThreadAllocatedBytes(sun.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder("{\"phases\":{");
+        String sep = "";
+        for (final Map.Entry<String, Phase> e : phases.entrySet()) {
+            sb.append(sep).append('"').append(e.getKey()).append("\":{\"nanos\":").append(e.getValue().nanos)
+                    .append(",\"allocatedBytes\":").append(e.getValue().allocatedBytes).append('}');
+            sep = ",";
+        }
+        sb.append("},\"search\":{")
+                .append("\"expansions\":").append(expansions)
+                .append(",\"applies\":").append(applies)
+                .append(",\"pruned\":").append(pruned)
+                .append(",\"openPeak\":").append(openPeak)
+                .append(",\"prefetched\":").append(prefetched)
+                .append(",\"prefetchTaken\":").append(prefetchTaken)
+                .append(",\"prefetchMissed\":").append(prefetchMissed)
+                .append("},\"computeDiff\":{")
+                .append("\"calls\":").append(diffCalls.sum())
+                .append(",\"nanos\":").append(diffNanos.sum())
+                .append(",\"maxNanos\":").append(diffMaxNanos.get())
+                .append("}}");
+        return sb.toString();
+    }
+}
@@ -1,27 +1,29 @@
 package jp.ac.titech.c.se.diff;
 
-import java.util.Collection;
-import java.util.List;
-
-import java.util.HashSet;
-
+/**
+ * A search state: a set of corrections and the path computed under them.
+ * Two states are the same when they hold the same corrections, since the path follows from them.
+ */
 public class ModificationState {
 
-    Collection<Chunk> correction;
-    List<Chunk> path;
+    final CorrectionSet correction;
+    final EditScript path;
+    // number of lines of the path that are also in the target diff, or -1 if not counted
+    final int matched;
 
-    public ModificationState(List<Chunk> path){
-        correction = new HashSet<>();
-        this.path = path;
+    public ModificationState(EditScript path){
+        this(CorrectionSet.EMPTY, path, -1);
     }
 
-    public ModificationState(Collection<Chunk> correction, List<Chunk> path){
+    public ModificationState(CorrectionSet correction, EditScript path, int matched){
         this.correction = correction;
         this.path = path;
+        this.matched = matched;
     }
-    
-    public boolean equals(ModificationState obj) {
-        return correction.equals(obj.correction);
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ModificationState other && correction.equals(other.correction);
     }
 
     @Override
@@ -0,0 +1,69 @@
+package jp.ac.titech.c.se.diff;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks on a fixed pool and prints their outputs in submission order.
+ * At most a few tasks per worker are in flight, so the outputs held for ordering stay bounded.
+ */
+final class OrderedPool implements AutoCloseable {
+    // number of tasks in flight per worker
+    static final int PENDING_PER_THREAD = 4;
+
+    record Result(String output, boolean failed) {}
+
+    private final ExecutorService pool;
+    private final PrintWriter out;
+    private final Deque<Future<Result>> pending = new ArrayDeque<>();
+    private final int window;
+    private int failures;
+
+    OrderedPool(final int threads, final PrintWriter out) {
+        this.pool = Executors.newFixedThreadPool(Math.max(threads, 1));
+        this.out = out;
+        this.window = Math.max(threads, 1) * PENDING_PER_THREAD;
+    }
+
+    void submit(final Callable<Result> task) throws InterruptedException {
+        if (pending.size() == window) {
+            print(pending.removeFirst());
+        }
+        pending.addLast(pool.submit(task));
+    }
+
+    /**
+     * Waits for the remaining tasks and returns the number of failed ones.
+     */
+    int finish() throws InterruptedException {
+        while (!pending.isEmpty()) {
+            print(pending.removeFirst());
+        }
+        return failures;
+    }
+
+    private void print(final Future<Result> future) throws InterruptedException {
+        final Result result;
+        try {
+            result = future.get();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        out.print(result.output);
+        out.flush();
+        if (result.failed) {
+            failures++;
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
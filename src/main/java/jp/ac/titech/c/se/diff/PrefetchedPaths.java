@@ -0,0 +1,32 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paths computed ahead by the successor pool, held until apply() takes them.
+ * The search generates each correction set once (see DiffSearch.generated), so each path is looked up
+ * at most once and is dropped when taken; there is nothing to reuse, and nothing to evict.
+ * This is a handoff, not a cache: {@link #take} counts the paths taken and those apply() had to compute itself,
+ * which are read by the search thread once it is done.
+ */
+final class PrefetchedPaths {
+    private final Map<CorrectionSet, EditScript> entries = new ConcurrentHashMap<>();
+    long taken;
+    long missed;
+
+    void put(final CorrectionSet key, final EditScript path) {
+        entries.put(key, path);
+    }
+
+    // the path computed ahead for the set, or null if apply() has to compute it
+    EditScript take(final CorrectionSet key) {
+        final EditScript path = entries.remove(key);
+        if (path != null) {
+            taken++;
+        } else {
+            missed++;
+        }
+        return path;
+    }
+}
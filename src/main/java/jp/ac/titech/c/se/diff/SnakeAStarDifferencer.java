@@ -0,0 +1,53 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The edge weights of {@link FastAStarDifferencer}, but runs of equal lines are followed in one step,
+ * so the number of states depends on the edits but not on the length of near-identical inputs, where
+ * {@link FastAStarDifferencer} creates O(N + M). It still grows faster than the number of edits D,
+ * as the equally cheap orders of the DEL and INS around each edit are all explored.
+ * Only the number of edits is guaranteed to be the same. Among diffs with as few edits, equal lines are
+ * matched as early as possible, while the DEL tie-breaker of {@link FastAStarDifferencer} matches them as late
+ * as possible; the chunks then differ, though both put the DEL before the INS of each run of edits.
+ */
+public final class SnakeAStarDifferencer<T> implements Differencer<T>, TokenDifferencer {
+
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public SnakeAStarDifferencer() {
+        this(null, null);
+    }
+
+    public SnakeAStarDifferencer(final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        return search(source, target).search();
+    }
+
+    // the search before it runs, so that its states can be counted
+    static EditGraphSearch search(final int[] source, final int[] target) {
+        return new EditGraphSearch(source.length, target.length, true) {
+            @Override
+            long weight(final Chunk.Type op, final int s, final int t) {
+                return switch (op) {
+                    case EQL -> source[s] == target[t] ? lineWeight : UNAVAILABLE;
+                    // control the order of operations that prefers DEL-INS rather than INS-DEL
+                    case DEL -> lineWeight + t;
+                    default -> lineWeight;
+                };
+            }
+        };
+    }
+}
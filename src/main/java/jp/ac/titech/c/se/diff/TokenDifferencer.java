@@ -0,0 +1,10 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+
+/**
+ * A differencer over interned lines (see {@link LineInterner}).
+ */
+public interface TokenDifferencer {
+    List<Chunk> computeDiff(int[] source, int[] target);
+}
@@ -0,0 +1,83 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Traceback directions of an edit-graph matrix, packed into two bits per cell.
+ * Each row starts at a word boundary.
+ */
+public final class Traceback {
+    public static final int NONE = 0;
+    public static final int FROM_HORIZONTAL = 1;
+    public static final int FROM_VERTICAL = 2;
+    public static final int FROM_DIAGONAL = 3;
+
+    static final int CELLS_PER_WORD = Long.SIZE / 2;
+
+    final int rows, columns;
+    final int stride;
+    final long[] bits;
+
+    public Traceback(final int rows, final int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.stride = (columns + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+        this.bits = new long[Math.multiplyExact(rows, stride)];
+    }
+
+    public void set(final int i, final int j, final int from) {
+        final int index = i * stride + j / CELLS_PER_WORD;
+        final int shift = (j % CELLS_PER_WORD) * 2;
+        bits[index] = (bits[index] & ~(3L << shift)) | ((long) from << shift);
+    }
+
+    public int get(final int i, final int j) {
+        return (int) (bits[i * stride + j / CELLS_PER_WORD] >>> ((j % CELLS_PER_WORD) * 2)) & 3;
+    }
+
+    public List<Chunk> findPath() {
+        return findPath(0, 0);
+    }
+
+    /**
+     * Traces back from the last cell to the first one, and returns the path in forward order.
+     * The chunk positions are shifted by the given offsets.
+     */
+    public List<Chunk> findPath(final int sourceOffset, final int targetOffset) {
+        return findPath(rows, columns, this::get, sourceOffset, targetOffset);
+    }
+
+    static List<Chunk> findPath(final int rows, final int columns, final IntBinaryOperator from, final int sourceOffset, final int targetOffset) {
+        int i = rows - 1;
+        int j = columns - 1;
+        final Chunk[] path = new Chunk[i + j];
+        int k = path.length;
+        while (i > 0 || j > 0) {
+            final int s = sourceOffset + i;
+            final int t = targetOffset + j;
+            switch (from.applyAsInt(i, j)) {
+                case FROM_HORIZONTAL -> {
+                    path[--k] = new Chunk(Chunk.Type.INS, s, s, t - 1, t);
+                    j--;
+                }
+                case FROM_VERTICAL -> {
+                    path[--k] = new Chunk(Chunk.Type.DEL, s - 1, s, t, t);
+                    i--;
+                }
+                case FROM_DIAGONAL -> {
+                    path[--k] = new Chunk(Chunk.Type.EQL, s - 1, s, t - 1, t);
+                    i--;
+                    j--;
+                }
+                default -> throw new IllegalStateException();
+            }
+        }
+        final List<Chunk> result = new ArrayList<>(path.length - k);
+        for (; k < path.length; k++) {
+            result.add(path[k]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+
+/**
+ * Strips the common leading and trailing lines before running a correction differencer.
+ * At most two engines are built: one over the middle part, used while every correction lies inside it,
+ * and one over the whole input for the other correction sets. Each keeps its own shortcuts for
+ * corrections, such as the incremental region of {@link CorrectionDynamicProgrammingDifferencer}.
+ * Engines are built on first use, by the first thread asking for them.
+ * <p>
+ * Forcing the path through the stripped part can still miss a detour around the corrections.
+ * A trimmed result is therefore accepted only when it uses no corrected edge, crosses no mismatched
+ * lines diagonally, and keeps as many matched lines as the uncorrected diff; no path can cost less than that.
+ * Otherwise the whole input is diffed.
+ */
+public final class TrimmingCorrectionDifferencer<T> implements CorrectionDifferencer<T> {
+    final int[] source, target;
+    final int prefix, suffix;
+    private final FutureTask<CorrectionDifferencer<T>> middle;
+    private final FutureTask<CorrectionDifferencer<T>> whole;
+    private final FutureTask<Integer> maxMatches = new FutureTask<>(this::computeMaxMatches);
+
+    public TrimmingCorrectionDifferencer(final int[] source, final int[] target, final BiFunction<int[], int[], CorrectionDifferencer<T>> factory) {
+        this.source = source;
+        this.target = target;
+        this.prefix = TrimmingDifferencer.commonPrefix(source, target);
+        this.suffix = TrimmingDifferencer.commonSuffix(source, target, prefix);
+        this.middle = new FutureTask<>(() ->
+                factory.apply(TrimmingDifferencer.copyMiddle(source, prefix, suffix), TrimmingDifferencer.copyMiddle(target, prefix, suffix)));
+        this.whole = prefix == 0 && suffix == 0 ? middle : new FutureTask<>(() -> factory.apply(source, target));
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final CorrectionSet correction) {
+        final List<Chunk> chunks = correction.toList();
+        if (prefix == 0 && suffix == 0 || !inMiddle(chunks)) {
+            return get(whole).computeDiff(correction);
+        }
+        final List<Chunk> shifted = new ArrayList<>(chunks.size());
+        for (final Chunk c : chunks) {
+            shifted.add(new Chunk(c.type, c.sourceStart - prefix, c.sourceEnd - prefix, c.targetStart - prefix, c.targetEnd - prefix));
+        }
+        final List<Chunk> result = join(get(middle).computeDiff(CorrectionSet.of(shifted)));
+        if (countMatches(result, correction) == get(maxMatches)) {
+            return result;
+        }
+        return get(whole).computeDiff(correction);
+    }
+
+    // whether every corrected edge starts and ends inside the middle part
+    private boolean inMiddle(final List<Chunk> chunks) {
+        for (final Chunk c : chunks) {
+            if (c.sourceStart < prefix || c.targetStart < prefix
+                    || c.sourceEnd > source.length - suffix || c.targetEnd > target.length - suffix) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Chunk> join(final List<Chunk> middlePath) {
+        return TrimmingDifferencer.join(middlePath, prefix, suffix, source.length, target.length);
+    }
+
+    private int computeMaxMatches() {
+        return countMatches(join(get(middle).computeDiff(CorrectionSet.EMPTY)), CorrectionSet.EMPTY);
+    }
+
+    // counts the EQL chunks, or -1 if the path takes a corrected edge or an EQL chunk on unequal lines
+    private int countMatches(final List<Chunk> path, final CorrectionSet correction) {
+        int count = 0;
+        for (final Chunk c : path) {
+            if (correction.contains(c)) {
+                return -1;
+            }
+            if (c.type == Chunk.Type.EQL) {
+                if (source[c.sourceStart] != target[c.targetStart]) {
+                    return -1;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // runs the task unless a thread has started it already, and waits for its result
+    private static <V> V get(final FutureTask<V> task) {
+        task.run();
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
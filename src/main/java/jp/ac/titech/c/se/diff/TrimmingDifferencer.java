@@ -0,0 +1,83 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Strips the common leading and trailing lines, and runs the given engine on the middle only.
+ * The result has one chunk per line, including the stripped EQL lines.
+ */
+public final class TrimmingDifferencer<T> implements Differencer<T>, TokenDifferencer {
+    private final TokenDifferencer engine;
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public TrimmingDifferencer(final TokenDifferencer engine) {
+        this(engine, null, null);
+    }
+
+    public TrimmingDifferencer(final TokenDifferencer engine, final BiPredicate<T, T> equality, final ToIntFunction<? super T> hash) {
+        this.engine = engine;
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    @Override
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        final int prefix = commonPrefix(source, target);
+        final int suffix = commonSuffix(source, target, prefix);
+        final int[] s = copyMiddle(source, prefix, suffix);
+        final int[] t = copyMiddle(target, prefix, suffix);
+        final List<Chunk> middle = Chunkase.complete(engine.computeDiff(s, t), s.length, t.length);
+        return join(middle, prefix, suffix, source.length, target.length);
+    }
+
+    static int commonPrefix(final int[] source, final int[] target) {
+        final int limit = Math.min(source.length, target.length);
+        int n = 0;
+        while (n < limit && source[n] == target[n]) {
+            n++;
+        }
+        return n;
+    }
+
+    static int commonSuffix(final int[] source, final int[] target, final int prefix) {
+        final int limit = Math.min(source.length, target.length) - prefix;
+        int n = 0;
+        while (n < limit && source[source.length - 1 - n] == target[target.length - 1 - n]) {
+            n++;
+        }
+        return n;
+    }
+
+    static int[] copyMiddle(final int[] tokens, final int prefix, final int suffix) {
+        final int[] result = new int[tokens.length - prefix - suffix];
+        System.arraycopy(tokens, prefix, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * Shifts a per-line diff of the middle part by the prefix length, and surrounds it with the stripped EQL lines.
+     */
+    static List<Chunk> join(final List<Chunk> middle, final int prefix, final int suffix, final int sourceSize, final int targetSize) {
+        final List<Chunk> result = new ArrayList<>(prefix + middle.size() + suffix);
+        for (int i = 0; i < prefix; i++) {
+            result.add(new Chunk(Chunk.Type.EQL, i, i + 1, i, i + 1));
+        }
+        for (final Chunk c : middle) {
+            result.add(new Chunk(c.type, c.sourceStart + prefix, c.sourceEnd + prefix, c.targetStart + prefix, c.targetEnd + prefix));
+        }
+        for (int k = suffix; k > 0; k--) {
+            result.add(new Chunk(Chunk.Type.EQL, sourceSize - k, sourceSize - k + 1, targetSize - k, targetSize - k + 1));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+package jp.ac.titech.c.se.diff;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a diff in the unified format, with the given number of context lines around each change.
+ * It reads the chunks as they come from a differencer: either one chunk per line, or JGit-style
+ * change regions with the equal lines left implicit. Equal lines are never expanded into chunks;
+ * runs longer than twice the context just separate hunks.
+ * A last line without a terminator is followed by {@code \ No newline at end of file}, as patch(1) expects.
+ */
+public final class UnifiedDiffWriter {
+    private final Writer out;
+    private final int context;
+
+    // a maximal run of changed lines: source [s0, s1) is replaced by target [t0, t1)
+    record Change(int s0, int s1, int t0, int t1) {}
+
+    public UnifiedDiffWriter(final Writer out, final int context) {
+        this.out = out;
+        this.context = context;
+    }
+
+    public void write(final String sourceName, final String targetName, final List<Chunk> diff,
+                      final List<String> source, final List<String> target,
+                      final boolean sourceTerminated, final boolean targetTerminated) {
+        final List<Change> changes = changes(diff);
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            out.write("--- " + sourceName + "\n");
+            out.write("+++ " + targetName + "\n");
+            int first = 0;
+            for (int k = 1; k <= changes.size(); k++) {
+                if (k == changes.size() || changes.get(k).s0 - changes.get(k - 1).s1 > 2 * context) {
+                    writeHunk(changes.subList(first, k), source, target, sourceTerminated, targetTerminated);
+                    first = k;
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<Change> changes(final List<Chunk> diff) {
+        final List<Change> result = new ArrayList<>();
+        Change last = null;
+        for (final Chunk c : diff) {
+            if (c.type == Chunk.Type.EQL) {
+                continue;
+            }
+            if (last != null && last.s1 == c.sourceStart && last.t1 == c.targetStart) {
+                last = new Change(last.s0, c.sourceEnd, last.t0, c.targetEnd);
+                result.set(result.size() - 1, last);
+            } else {
+                last = new Change(c.sourceStart, c.sourceEnd, c.targetStart, c.targetEnd);
+                result.add(last);
+            }
+        }
+        return result;
+    }
+
+    private void writeHunk(final List<Change> hunk, final List<String> source, final List<String> target,
+                           final boolean sourceTerminated, final boolean targetTerminated) throws IOException {
+        final Change head = hunk.get(0);
+        final Change tail = hunk.get(hunk.size() - 1);
+        final int before = Math.min(context, head.s0);
+        final int after = Math.min(context, source.size() - tail.s1);
+        final int s0 = head.s0 - before;
+        final int t0 = head.t0 - before;
+        final int s1 = tail.s1 + after;
+        final int t1 = tail.t1 + after;
+        out.write("@@ -" + range(s0, s1 - s0) + " +" + range(t0, t1 - t0) + " @@\n");
+
+        // context lines equal their target lines, including whether the last one is terminated
+        int s = s0;
+        for (final Change c : hunk) {
+            writeLines(' ', source, s, c.s0, sourceTerminated);
+            writeLines('-', source, c.s0, c.s1, sourceTerminated);
+            writeLines('+', target, c.t0, c.t1, targetTerminated);
+            s = c.s1;
+        }
+        writeLines(' ', source, s, s1, sourceTerminated);
+    }
+
+    // as in GNU diff: 1-based start, the count omitted when it is 1, and an empty range starts at the line before
+    private static String range(final int start, final int count) {
+        return switch (count) {
+            case 0 -> start + ",0";
+            case 1 -> String.valueOf(start + 1);
+            default -> (start + 1) + "," + count;
+        };
+    }
+
+    private void writeLines(final char prefix, final List<String> lines, final int from, final int to, final boolean terminated) throws IOException {
+        for (int i = from; i < to; i++) {
+            out.write(prefix);
+            out.write(lines.get(i));
+            out.write('\n');
+            if (i == lines.size() - 1 && !terminated) {
+                out.write("\\ No newline at end of file\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@link DynamicProgrammingDifferencer} computed along anti-diagonals, several cells at a time with the
+ * Vector API (see VectorKernel, in the vector source set); it yields exactly the same chunks.
+ * The JVM needs {@code --add-modules jdk.incubator.vector}; without the module, this runs the scalar differencer.
+ */
+public final class VectorDifferencer<T> implements Differencer<T>, TokenDifferencer {
+    // the kernel, or null without the module; loaded by name, as main is compiled without the module
+    static final TokenDifferencer KERNEL = loadKernel();
+
+    private final BiPredicate<T, T> equality;
+    private final ToIntFunction<? super T> hash;
+
+    public VectorDifferencer() {
+        this(null, null);
+    }
+
+    public VectorDifferencer(BiPredicate<T, T> equality, ToIntFunction<? super T> hash) {
+        this.equality = equality;
+        this.hash = hash;
+    }
+
+    private static TokenDifferencer loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (TokenDifferencer) Class.forName("jp.ac.titech.c.se.diff.VectorKernel$Engine").getDeclaredConstructor().newInstance();
+        } catch (final ReflectiveOperationException e) {
+            // a classpath without the vector source set
+            return null;
+        }
+    }
+
+    public List<Chunk> computeDiff(final List<T> source, final List<T> target) {
+        final LineInterner<T> interner = new LineInterner<>(equality, hash);
+        return computeDiff(interner.intern(source), interner.intern(target));
+    }
+
+    public List<Chunk> computeDiff(final int[] source, final int[] target) {
+        if (KERNEL == null) {
+            return new DynamicProgrammingDifferencer<T>().computeDiff(source, target);
+        }
+        return KERNEL.computeDiff(source, target);
+    }
+}
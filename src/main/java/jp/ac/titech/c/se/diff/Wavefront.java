@@ -0,0 +1,68 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fills an edit-graph matrix tile by tile, running the tiles of each anti-diagonal in parallel.
+ * A tile only depends on the tiles above, to the left and above-left of it, which all lie on
+ * earlier anti-diagonals, so each cell sees the same inputs as in a row-by-row fill.
+ * Tiles are a multiple of {@link Traceback#CELLS_PER_WORD} wide, so that no two tiles share a traceback word.
+ */
+final class Wavefront {
+    static final int TILE = 8 * Traceback.CELLS_PER_WORD;
+    // matrices with fewer cells are filled row by row on the calling thread
+    static final long PARALLEL_THRESHOLD = 1L << 22;
+
+    /**
+     * Fills the cells i in [i0, i1) and j in [j0, j1) of tile (r, c). Row 0 and column 0 are left out of every tile.
+     */
+    interface TileFiller {
+        void fill(int r, int c, int i0, int i1, int j0, int j1);
+    }
+
+    static boolean worthwhile(final int rows, final int columns) {
+        return rows > TILE && columns > TILE && (long) rows * columns >= PARALLEL_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    // the number of tiles along a side of the given number of cells, including the first row or column
+    static int tiles(final int cells) {
+        return (cells + TILE - 1) / TILE;
+    }
+
+    /**
+     * Runs the filler over a matrix of the given size, one anti-diagonal of tiles at a time.
+     */
+    static void fill(final int rows, final int columns, final TileFiller filler) {
+        final int tileRows = tiles(rows);
+        final int tileColumns = tiles(columns);
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int d = 0; d < tileRows + tileColumns - 1; d++) {
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for (int r = Math.max(0, d - tileColumns + 1); r <= Math.min(d, tileRows - 1); r++) {
+                final int tr = r;
+                final int tc = d - r;
+                final int i0 = Math.max(1, tr * TILE);
+                final int i1 = Math.min(rows, (tr + 1) * TILE);
+                final int j0 = Math.max(1, tc * TILE);
+                final int j1 = Math.min(columns, (tc + 1) * TILE);
+                if (i0 < i1 && j0 < j1) {
+                    tasks.add(() -> {
+                        filler.fill(tr, tc, i0, i1, j0, j1);
+                        return null;
+                    });
+                }
+            }
+            for (final var future : pool.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (final Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AnchoredDifferencerTest {
+
+    // lines of a small alphabet, each with a unique line (an id of 100 or more) at a few shared positions in between
+    static int[] withMarkers(final Random random, final int size, final int[] markers) {
+        final List<Integer> lines = new ArrayList<>();
+        random.ints(size, 0, 3).forEach(lines::add);
+        for (final int marker : markers) {
+            lines.add(random.nextInt(lines.size() + 1), marker);
+        }
+        return lines.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void matchesEngineWithoutAnchors() {
+        // every line occurs at least twice in the source, so there are no anchors and the engine sees the whole input
+        final Random random = new Random(1);
+        final var engine = new DynamicProgrammingDifferencer<String>();
+        for (int n = 0; n < 2000; n++) {
+            final int[] half = random.ints(random.nextInt(8), 0, 4).toArray();
+            final int[] source = new int[2 * half.length];
+            for (int i = 0; i < half.length; i++) {
+                source[i] = source[half.length + i] = half[i];
+            }
+            final int[] target = random.ints(random.nextInt(12), 0, 4).toArray();
+            final String message = Arrays.toString(source) + " -> " + Arrays.toString(target);
+            assertEquals(message, 0, AnchoredDifferencer.anchors(source, target).length);
+            assertEquals(message, Chunkase.complete(engine.computeDiff(source, target), source.length, target.length),
+                    new AnchoredDifferencer<String>(engine).computeDiff(source, target));
+        }
+    }
+
+    @Test
+    public void minimalOnUniqueLines() {
+        // when no line repeats, the anchors are a longest common subsequence, so nothing is lost by matching them
+        final Random random = new Random(2);
+        for (int n = 0; n < 1000; n++) {
+            final int[] source = random.ints(0, 40).distinct().limit(random.nextInt(30)).toArray();
+            final int[] target = random.ints(0, 40).distinct().limit(random.nextInt(30)).toArray();
+            final String message = Arrays.toString(source) + " -> " + Arrays.toString(target);
+            final List<Chunk> expected = new DynamicProgrammingDifferencer<String>().computeDiff(source, target);
+            final List<Chunk> actual = new AnchoredDifferencer<String>(new HirschbergDifferencer<String>()).computeDiff(source, target);
+            EditGraphSearchTest.assertSteps(message, source, target, actual);
+            TokenDifferencerTest.assertPath(message, source, target, actual);
+            assertEquals(message, TokenDifferencerTest.edits(expected), TokenDifferencerTest.edits(actual));
+        }
+    }
+
+    @Test
+    public void matchesAnchorsAndEngineInBetween() {
+        // the large inputs have gaps above PARALLEL_THRESHOLD, which are diffed on the pool
+        final Random random = new Random(3);
+        for (int n = 0; n < 200; n++) {
+            final int size = n < 180 ? 20 : 1200;
+            final int[] markers = random.ints(100, 110).distinct().limit(random.nextInt(4)).toArray();
+            final int[] source = withMarkers(random, random.nextInt(size), markers);
+            final int[] target = withMarkers(random, random.nextInt(size), markers);
+            final String message = Arrays.toString(source) + " -> " + Arrays.toString(target);
+            final List<Chunk> expected = new BitParallelDifferencer<String>().computeDiff(source, target);
+            final List<Chunk> actual = new AnchoredDifferencer<String>(new BitParallelDifferencer<String>()).computeDiff(source, target);
+            EditGraphSearchTest.assertSteps(message, source, target, actual);
+            TokenDifferencerTest.assertPath(message, source, target, actual);
+            assertTrue(message, TokenDifferencerTest.edits(actual) >= TokenDifferencerTest.edits(expected));
+            final int[] anchors = AnchoredDifferencer.anchors(source, target);
+            for (int k = 0; k < anchors.length; k += 2) {
+                final int s = anchors[k];
+                final int t = anchors[k + 1];
+                assertTrue(message, actual.contains(new Chunk(Chunk.Type.EQL, s, s + 1, t, t + 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BitParallelDifferencerTest {
+
+    @Test
+    public void lcsLengthCountsEqualLines() {
+        final Random random = new Random(1);
+        for (int n = 0; n < 3000; n++) {
+            // targets of up to three words
+            final int size = n < 2000 ? 12 : 200;
+            final int alphabet = 2 + random.nextInt(8);
+            final int[] source = random.ints(random.nextInt(size), 0, alphabet).toArray();
+            final int[] target = random.ints(random.nextInt(size), 0, alphabet).toArray();
+            final long equal = new BitParallelDifferencer<String>().computeDiff(source, target).stream()
+                    .filter(c -> c.getType() == Chunk.Type.EQL)
+                    .count();
+            assertEquals(Arrays.toString(source) + " -> " + Arrays.toString(target), equal, BitParallelDifferencer.lcsLength(source, target));
+        }
+    }
+}
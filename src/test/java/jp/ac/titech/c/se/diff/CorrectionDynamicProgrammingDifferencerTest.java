@@ -0,0 +1,94 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CorrectionDynamicProgrammingDifferencerTest {
+
+    // a random edge inside the edit graph
+    static Chunk randomEdge(final Random random, final int[] source, final int[] target) {
+        final Chunk.Type[] types = {Chunk.Type.DEL, Chunk.Type.INS, Chunk.Type.EQL};
+        while (true) {
+            final Chunk.Type type = types[random.nextInt(types.length)];
+            final int s = random.nextInt(source.length + 1);
+            final int t = random.nextInt(target.length + 1);
+            final int ds = type == Chunk.Type.INS ? 0 : 1;
+            final int dt = type == Chunk.Type.DEL ? 0 : 1;
+            if (s + ds <= source.length && t + dt <= target.length) {
+                return new Chunk(type, s, s + ds, t, t + dt);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the whole matrix with the corrected weights, as the region does for the cells it covers.
+     */
+    static final class Full {
+        final int[][] cost;
+        final Traceback traceback;
+
+        Full(final CorrectionDynamicProgrammingDifferencer<String> dp, final CorrectionSet correction) {
+            final int rows = dp.source.length + 1;
+            final int columns = dp.target.length + 1;
+            cost = new int[rows][columns];
+            traceback = new Traceback(rows, columns);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    if (i == 0 && j == 0) {
+                        continue;
+                    }
+                    final int horizontal = j > 0 ? cost[i][j - 1] + weight(dp, correction, Chunk.Type.INS, i, j) : Integer.MAX_VALUE;
+                    final int vertical = i > 0 ? cost[i - 1][j] + weight(dp, correction, Chunk.Type.DEL, i, j) : Integer.MAX_VALUE;
+                    final int diagonal = i > 0 && j > 0 ? cost[i - 1][j - 1] + weight(dp, correction, Chunk.Type.EQL, i, j) : Integer.MAX_VALUE;
+                    final int min = Math.min(diagonal, Math.min(horizontal, vertical));
+                    cost[i][j] = min;
+                    traceback.set(i, j, DynamicProgrammingDifferencer.from(min, horizontal, vertical));
+                }
+            }
+        }
+
+        // the weight of the edge of the given type ending at (i, j)
+        static int weight(final CorrectionDynamicProgrammingDifferencer<String> dp, final CorrectionSet correction,
+                          final Chunk.Type type, final int i, final int j) {
+            final int s = type == Chunk.Type.INS ? i : i - 1;
+            final int t = type == Chunk.Type.DEL ? j : j - 1;
+            return correction.contains(type, s, t) ? dp.CORRECTION_WEIGHT : dp.baseWeight(type, i, j);
+        }
+    }
+
+    @Test
+    public void regionMatchesFullRecomputation() {
+        final Random random = new Random(1);
+        for (int n = 0; n < 2000; n++) {
+            final int size = n < 1500 ? 10 : 60;
+            final int[] source = random.ints(random.nextInt(size), 0, 3).toArray();
+            final int[] target = random.ints(random.nextInt(size), 0, 3).toArray();
+            if (source.length + target.length == 0) {
+                continue;
+            }
+            final var dp = new CorrectionDynamicProgrammingDifferencer<String>(source, target);
+            CorrectionSet correction = CorrectionSet.EMPTY;
+            for (int k = 0; k < 5; k++) {
+                // edges anywhere, and edges of the current path, as the correction search corrects
+                final List<Chunk> path = dp.computeDiff(correction);
+                correction = correction.with(random.nextBoolean() || path.isEmpty()
+                        ? randomEdge(random, source, target)
+                        : path.get(random.nextInt(path.size())));
+                final String message = Arrays.toString(source) + " -> " + Arrays.toString(target) + " " + correction.toList();
+                final Full full = new Full(dp, correction);
+                final var region = dp.new Region(correction);
+                for (int i = 0; i <= source.length; i++) {
+                    for (int j = 0; j <= target.length; j++) {
+                        assertEquals(message + " at " + i + "," + j, full.cost[i][j], region.cost(i, j));
+                    }
+                }
+                assertEquals(message, full.traceback.findPath(), dp.computeDiff(correction));
+            }
+        }
+    }
+}
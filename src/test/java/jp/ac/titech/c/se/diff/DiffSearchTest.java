@@ -0,0 +1,48 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class DiffSearchTest {
+
+    static List<String> randomLines(final Random random) {
+        return IntStream.range(0, random.nextInt(10))
+                .mapToObj(i -> String.valueOf((char) ('a' + random.nextInt(3))))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void threadsDoNotChangeTheResult() {
+        final Random random = new Random(1);
+        // A*, weighted A* and beam search; some targets are out of reach, so every search has a node budget
+        final List<BudgetedSearch.Budget> budgets = List.of(
+                new BudgetedSearch.Budget(50, 0, 1.0, 0),
+                new BudgetedSearch.Budget(50, 0, 2.0, 0),
+                new BudgetedSearch.Budget(50, 0, 1.0, 3));
+        for (int n = 0; n < 100; n++) {
+            final List<String> source = randomLines(random);
+            final List<String> target = randomLines(random);
+            for (final BudgetedSearch.Budget budget : budgets) {
+                final DiffSearch single = new DiffSearch(App.DifferencerType.dp, source, target, false, false, false, 1);
+                final DiffSearch pooled = new DiffSearch(App.DifferencerType.dp, source, target, false, false, false, 4);
+                final ModificationState expected = single.search(budget);
+                final ModificationState actual = pooled.search(budget);
+                final String message = source + " -> " + target + " " + budget;
+                assertEquals(message, expected.correction, actual.correction);
+                assertEquals(message, expected.path, actual.path);
+                assertEquals(message, single.metrics.expansions, pooled.metrics.expansions);
+                assertEquals(message, single.metrics.applies, pooled.metrics.applies);
+                assertEquals(message, single.metrics.pruned, pooled.metrics.pruned);
+                // every successor is computed ahead, and taken by apply()
+                assertEquals(message, pooled.metrics.applies, pooled.metrics.prefetchTaken);
+                assertEquals(message, 0, pooled.metrics.prefetchMissed);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EditGraphSearchTest {
+
+    // the cost of a path of single-line chunks under the weights of CorrectionDynamicProgrammingDifferencer
+    static long cost(final List<Chunk> path, final int[] source, final int[] target, final CorrectionSet correction) {
+        final int penalty = source.length + target.length + 1;
+        long cost = 0;
+        for (final Chunk c : path) {
+            if (c.getType() == Chunk.Type.EQL) {
+                cost += source[c.getSourceStart()] == target[c.getTargetStart()] ? 0 : penalty;
+            } else {
+                cost += 1;
+            }
+            if (correction.contains(c)) {
+                cost += penalty;
+            }
+        }
+        return cost;
+    }
+
+    // asserts that the path goes from (0, 0) to the end by single-line steps; cost() charges mismatched EQL steps
+    static void assertSteps(final String message, final int[] source, final int[] target, final List<Chunk> path) {
+        int s = 0;
+        int t = 0;
+        for (final Chunk c : path) {
+            assertEquals(message, s, c.getSourceStart());
+            assertEquals(message, t, c.getTargetStart());
+            s = c.getSourceEnd();
+            t = c.getTargetEnd();
+            assertEquals(message, c.getType() == Chunk.Type.INS ? 0 : 1, s - c.getSourceStart());
+            assertEquals(message, c.getType() == Chunk.Type.DEL ? 0 : 1, t - c.getTargetStart());
+        }
+        assertEquals(message, source.length, s);
+        assertEquals(message, target.length, t);
+    }
+
+    @Test
+    public void costsAsMuchAsDynamicProgramming() {
+        final Random random = new Random(1);
+        for (int n = 0; n < 3000; n++) {
+            final int alphabet = 2 + random.nextInt(4);
+            final int size = n < 2000 ? 12 : 300;
+            final int[] source = random.ints(random.nextInt(size), 0, alphabet).toArray();
+            final int[] target = random.ints(random.nextInt(size), 0, alphabet).toArray();
+            final String message = Arrays.toString(source) + " -> " + Arrays.toString(target);
+            final long expected = cost(new DynamicProgrammingDifferencer<String>().computeDiff(source, target), source, target, CorrectionSet.EMPTY);
+            final List<Chunk> actual = new FastAStarDifferencer<String>().computeDiff(source, target);
+            assertSteps(message, source, target, actual);
+            assertEquals(message, expected, cost(actual, source, target, CorrectionSet.EMPTY));
+        }
+    }
+
+    @Test
+    public void costsAsMuchAsDynamicProgrammingWithCorrections() {
+        final Random random = new Random(2);
+        for (int n = 0; n < 1000; n++) {
+            final int alphabet = 2 + random.nextInt(4);
+            final int size = n < 800 ? 12 : 100;
+            final int[] source = random.ints(random.nextInt(size), 0, alphabet).toArray();
+            final int[] target = random.ints(random.nextInt(size), 0, alphabet).toArray();
+            final var dp = new CorrectionDynamicProgrammingDifferencer<String>(source, target);
+            final var fast = new FastCorrectionAstarDifferencer<String>(source, target);
+            // correct edges of the current path, as the correction search does
+            CorrectionSet correction = CorrectionSet.EMPTY;
+            for (int k = 0; k < 4; k++) {
+                final List<Chunk> expected = dp.computeDiff(correction);
+                final List<Chunk> actual = fast.computeDiff(correction);
+                final String message = Arrays.toString(source) + " -> " + Arrays.toString(target) + " " + correction.toList();
+                assertSteps(message, source, target, actual);
+                assertEquals(message, cost(expected, source, target, correction), cost(actual, source, target, correction));
+                if (expected.isEmpty()) {
+                    break;
+                }
+                correction = correction.with(expected.get(random.nextInt(expected.size())));
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EditScriptTest {
+
+    static List<Chunk> lines(final EditScript script) {
+        final List<Chunk> result = new ArrayList<>();
+        script.lines().forEach(result::add);
+        return result;
+    }
+
+    // the same path as the per-line chunks, split into runs of random length that the builder must merge back
+    static EditScript rebuild(final Random random, final List<Chunk> chunks) {
+        final EditScript.Builder builder = new EditScript.Builder();
+        int k = 0;
+        while (k < chunks.size()) {
+            final int length = 1 + random.nextInt(3);
+            int n = 0;
+            while (n < length && k + n < chunks.size() && chunks.get(k + n).getType() == chunks.get(k).getType()) {
+                n++;
+            }
+            builder.add(chunks.get(k).getType(), n);
+            builder.add(chunks.get(k).getType(), 0);
+            k += n;
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void roundTripsChunks() {
+        final Random random = new Random(1);
+        for (int n = 0; n < 3000; n++) {
+            final int[] source = random.ints(random.nextInt(15), 0, 3).toArray();
+            final int[] target = random.ints(random.nextInt(15), 0, 3).toArray();
+            final String message = Arrays.toString(source) + " -> " + Arrays.toString(target);
+            // one chunk per line, and JGit-style change regions with the equal lines left implicit
+            final List<Chunk> perLine = new DynamicProgrammingDifferencer<String>().computeDiff(source, target);
+            final List<Chunk> regions = new JGitDifferencer.Myers<String>().computeDiff(source, target);
+            for (final List<Chunk> diff : List.of(perLine, regions)) {
+                final EditScript script = EditScript.of(diff);
+                final List<Chunk> expected = Chunkase.degrade(diff, source.length, target.length);
+                assertEquals(message, expected, lines(script));
+                assertEquals(message, expected.size(), script.size());
+
+                final List<Chunk> visited = new ArrayList<>();
+                script.forEachLine((type, s, t) -> visited.add(new Chunk(type, s, type == Chunk.Type.INS ? s : s + 1, t, type == Chunk.Type.DEL ? t : t + 1)));
+                assertEquals(message, expected, visited);
+
+                int size = 0;
+                for (int r = 0; r < script.runs(); r++) {
+                    assertTrue(message, script.length(r) > 0);
+                    assertTrue(message, r == 0 || script.type(r) != script.type(r - 1));
+                    size += script.length(r);
+                }
+                assertEquals(message, script.size(), size);
+            }
+        }
+    }
+
+    @Test
+    public void equalsExactlyTheSamePath() {
+        final Random random = new Random(2);
+        final List<List<Chunk>> paths = new ArrayList<>();
+        final List<EditScript> scripts = new ArrayList<>();
+        for (int n = 0; n < 300; n++) {
+            final int[] source = random.ints(random.nextInt(6), 0, 2).toArray();
+            final int[] target = random.ints(random.nextInt(6), 0, 2).toArray();
+            final List<Chunk> path = Chunkase.degrade(new JGitDifferencer.Histogram<String>().computeDiff(source, target), source.length, target.length);
+            final EditScript script = EditScript.of(path);
+            final EditScript rebuilt = rebuild(random, path);
+            assertEquals(path.toString(), script, rebuilt);
+            assertEquals(path.toString(), script.hashCode(), rebuilt.hashCode());
+            paths.add(path);
+            scripts.add(script);
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            for (int j = 0; j < paths.size(); j++) {
+                if (paths.get(i).equals(paths.get(j))) {
+                    assertEquals(scripts.get(i), scripts.get(j));
+                    assertEquals(scripts.get(i).hashCode(), scripts.get(j).hashCode());
+                } else {
+                    assertNotEquals(paths.get(i) + " " + paths.get(j), scripts.get(i), scripts.get(j));
+                }
+            }
+        }
+    }
+}
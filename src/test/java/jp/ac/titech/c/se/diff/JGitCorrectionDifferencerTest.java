@@ -0,0 +1,84 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.MyersDiff;
+import org.junit.Test;
+
+public class JGitCorrectionDifferencerTest {
+
+    // the number of corrected edges and diagonals between different lines on the path
+    static int penalties(final List<Chunk> path, final int[] source, final int[] target, final CorrectionSet correction) {
+        int count = 0;
+        for (final Chunk c : path) {
+            if (correction.contains(c)) {
+                count++;
+            }
+            if (c.getType() == Chunk.Type.EQL && source[c.getSourceStart()] != target[c.getTargetStart()]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Grows correction sets from the edges of the path, as the correction search does, and from random edges.
+     * The path must have as few penalized edges as the correction DP, which has the fewest,
+     * and, if {@code least}, cost as much as its path.
+     */
+    static void check(final DiffAlgorithm algorithm, final long maxRepairCells, final boolean least, final long seed) {
+        final Random random = new Random(seed);
+        for (int n = 0; n < 1000; n++) {
+            final int size = n < 800 ? 12 : 80;
+            final int[] source = random.ints(random.nextInt(size), 0, 3).toArray();
+            final int[] target = random.ints(random.nextInt(size), 0, 3).toArray();
+            if (source.length + target.length == 0) {
+                continue;
+            }
+            final var dp = new CorrectionDynamicProgrammingDifferencer<String>(source, target);
+            final var jgit = new JGitCorrectionDifferencer<String>(algorithm, source, target, maxRepairCells);
+            CorrectionSet correction = CorrectionSet.EMPTY;
+            for (int k = 0; k < 5; k++) {
+                final List<Chunk> expected = dp.computeDiff(correction);
+                final List<Chunk> actual = jgit.computeDiff(correction);
+                final String message = Arrays.toString(source) + " -> " + Arrays.toString(target) + " " + correction.toList();
+                EditGraphSearchTest.assertSteps(message, source, target, actual);
+                assertEquals(message, penalties(expected, source, target, correction), penalties(actual, source, target, correction));
+                final long cost = EditGraphSearchTest.cost(actual, source, target, correction);
+                final long expectedCost = EditGraphSearchTest.cost(expected, source, target, correction);
+                if (least) {
+                    assertEquals(message, expectedCost, cost);
+                } else {
+                    assertTrue(message, cost >= expectedCost);
+                }
+                correction = correction.with(random.nextBoolean() || actual.isEmpty()
+                        ? CorrectionDynamicProgrammingDifferencerTest.randomEdge(random, source, target)
+                        : actual.get(random.nextInt(actual.size())));
+            }
+        }
+    }
+
+    @Test
+    public void myersAvoidsCorrectedEdges() {
+        check(MyersDiff.INSTANCE, JGitCorrectionDifferencer.MAX_REPAIR_CELLS, false, 1);
+    }
+
+    @Test
+    public void histogramAvoidsCorrectedEdges() {
+        check(new HistogramDiff(), JGitCorrectionDifferencer.MAX_REPAIR_CELLS, false, 2);
+    }
+
+    @Test
+    public void rerunAvoidsCorrectedEdges() {
+        // a minimal myers path that avoids the corrected edges costs as little as any; every other path is rerun
+        check(MyersDiff.INSTANCE, 0, true, 3);
+        check(new HistogramDiff(), 0, false, 4);
+    }
+}
@@ -0,0 +1,38 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SnakeAStarDifferencerTest {
+
+    // distinct lines, of which the given number are replaced at fixed positions
+    static int[][] nearlyIdentical(final int size, final int edits) {
+        final int[] source = new int[size];
+        for (int i = 0; i < size; i++) {
+            source[i] = i;
+        }
+        final int[] target = source.clone();
+        for (int k = 0; k < edits; k++) {
+            target[50 + 97 * k] = -1 - k;
+        }
+        return new int[][] {source, target};
+    }
+
+    static int states(final EditGraphSearch search) {
+        search.search();
+        return search.count;
+    }
+
+    @Test
+    public void statesDoNotGrowWithLength() {
+        for (final int edits : new int[] {0, 1, 5, 10}) {
+            final int[][] small = nearlyIdentical(1000, edits);
+            final int[][] large = nearlyIdentical(100000, edits);
+            final int states = states(SnakeAStarDifferencer.search(small[0], small[1]));
+            assertEquals("edits: " + edits, states, states(SnakeAStarDifferencer.search(large[0], large[1])));
+            assertTrue("edits: " + edits, states < states(FastAStarDifferencer.search(small[0], small[1])) / 10);
+        }
+    }
+}
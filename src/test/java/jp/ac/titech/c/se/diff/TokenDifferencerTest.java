@@ -0,0 +1,122 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Compares every {@link TokenDifferencer} engine with {@link DynamicProgrammingDifferencer} on seeded random inputs.
+ */
+@RunWith(Parameterized.class)
+public class TokenDifferencerTest {
+
+    enum Expect {
+        // the same chunks as dp
+        CHUNKS,
+        // a diff with as few edits as dp
+        EDITS,
+        // a diff, not necessarily minimal
+        VALID
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> engines() {
+        return List.of(
+                new Object[] {"hirschberg", new HirschbergDifferencer<String>(), Expect.CHUNKS},
+                new Object[] {"bitlcs", new BitParallelDifferencer<String>(), Expect.CHUNKS},
+                new Object[] {"vector", new VectorDifferencer<String>(), Expect.CHUNKS},
+                new Object[] {"fastastar", new FastAStarDifferencer<String>(), Expect.EDITS},
+                new Object[] {"snakeastar", new SnakeAStarDifferencer<String>(), Expect.EDITS},
+                new Object[] {"myers", new JGitDifferencer.Myers<String>(), Expect.EDITS},
+                new Object[] {"histogram", new JGitDifferencer.Histogram<String>(), Expect.VALID});
+    }
+
+    final TokenDifferencer engine;
+    final Expect expect;
+
+    public TokenDifferencerTest(final String name, final TokenDifferencer engine, final Expect expect) {
+        this.engine = engine;
+        this.expect = expect;
+    }
+
+    void check(final int[] source, final int[] target) {
+        final String message = Arrays.toString(source) + " -> " + Arrays.toString(target);
+        final List<Chunk> expected = new DynamicProgrammingDifferencer<String>().computeDiff(source, target);
+        final List<Chunk> actual = engine.computeDiff(source, target);
+        switch (expect) {
+            case CHUNKS -> assertEquals(message, expected, actual);
+            case EDITS -> {
+                assertPath(message, source, target, actual);
+                assertEquals(message, edits(expected), edits(actual));
+            }
+            case VALID -> {
+                assertPath(message, source, target, actual);
+                assertTrue(message, edits(actual) >= edits(expected));
+            }
+        }
+    }
+
+    @Test
+    public void matchesDynamicProgramming() {
+        final Random random = new Random(1);
+        for (int n = 0; n < 5000; n++) {
+            check(random.ints(random.nextInt(12), 0, 4).toArray(), random.ints(random.nextInt(12), 0, 4).toArray());
+        }
+    }
+
+    @Test
+    public void matchesDynamicProgrammingOnLargerInputs() {
+        // splits of hirschberg, several words of bitlcs, several lane groups of vector
+        final Random random = new Random(2);
+        for (int n = 0; n < 300; n++) {
+            final int alphabet = 2 + random.nextInt(200);
+            check(random.ints(random.nextInt(300), 0, alphabet).toArray(), random.ints(random.nextInt(300), 0, alphabet).toArray());
+        }
+    }
+
+    // the number of deleted and inserted lines, counting a MOD chunk as both
+    static int edits(final List<Chunk> chunks) {
+        int count = 0;
+        for (final Chunk c : chunks) {
+            if (c.getType() != Chunk.Type.EQL) {
+                count += c.getSourceEnd() - c.getSourceStart() + c.getTargetEnd() - c.getTargetStart();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Asserts that the chunks, in order, turn the source into the target: the lines between and inside
+     * the EQL chunks are equal, and the chunks leave out none of the lines of either side.
+     */
+    static void assertPath(final String message, final int[] source, final int[] target, final List<Chunk> chunks) {
+        int s = 0;
+        int t = 0;
+        for (final Chunk c : chunks) {
+            assertEquals(message, c.getSourceStart() - s, c.getTargetStart() - t);
+            assertEqualLines(message, source, target, s, t, c.getSourceStart() - s);
+            if (c.getType() == Chunk.Type.EQL) {
+                assertEquals(message, c.getSourceEnd() - c.getSourceStart(), c.getTargetEnd() - c.getTargetStart());
+                assertEqualLines(message, source, target, c.getSourceStart(), c.getTargetStart(), c.getSourceEnd() - c.getSourceStart());
+            }
+            s = c.getSourceEnd();
+            t = c.getTargetEnd();
+        }
+        assertEquals(message, source.length - s, target.length - t);
+        assertEqualLines(message, source, target, s, t, source.length - s);
+    }
+
+    static void assertEqualLines(final String message, final int[] source, final int[] target, final int s, final int t, final int n) {
+        assertTrue(message, n >= 0);
+        for (int k = 0; k < n; k++) {
+            assertEquals(message, source[s + k], target[t + k]);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class TrimmingCorrectionDifferencerTest {
+
+    // the cost of a path under the weights of CorrectionDynamicProgrammingDifferencer
+    static int cost(final List<Chunk> path, final int[] source, final int[] target, final CorrectionSet correction) {
+        final int correctionWeight = source.length + target.length + 1;
+        int cost = 0;
+        for (final Chunk c : path) {
+            if (correction.contains(c)) {
+                cost += correctionWeight;
+            } else if (c.type == Chunk.Type.EQL) {
+                cost += source[c.sourceStart] == target[c.targetStart] ? 0 : correctionWeight;
+            } else {
+                cost += 1;
+            }
+        }
+        return cost;
+    }
+
+    static void assertOptimal(final int[] source, final int[] target, final CorrectionSet correction) {
+        final List<Chunk> expected = new CorrectionDynamicProgrammingDifferencer<String>(source, target).computeDiff(correction);
+        final List<Chunk> actual = new TrimmingCorrectionDifferencer<String>(source, target, CorrectionDynamicProgrammingDifferencer::new).computeDiff(correction);
+        assertEquals(cost(expected, source, target, correction), cost(actual, source, target, correction));
+    }
+
+    @Test
+    public void rejectsMismatchedDiagonal() {
+        // the trimmed engine crosses the mismatched lines 0 and 13 diagonally (cost 5) instead of deleting and inserting (cost 4)
+        final int[] source = {9, 0};
+        final int[] target = {9, 13};
+        final CorrectionSet correction = CorrectionSet.of(List.of(
+                new Chunk(Chunk.Type.INS, 1, 1, 1, 2),
+                new Chunk(Chunk.Type.INS, 2, 2, 1, 2)));
+        assertOptimal(source, target, correction);
+    }
+
+    @Test
+    public void matchesUntrimmedCost() {
+        final Random random = new Random(1);
+        for (int n = 0; n < 2000; n++) {
+            final int[] source = random.ints(random.nextInt(12), 0, 4).toArray();
+            final int[] target = random.ints(random.nextInt(12), 0, 4).toArray();
+            final var differencer = new CorrectionDynamicProgrammingDifferencer<String>(source, target);
+            CorrectionSet correction = CorrectionSet.EMPTY;
+            for (int k = 0; k < 4; k++) {
+                final List<Chunk> path = differencer.computeDiff(correction);
+                if (path.isEmpty()) {
+                    break;
+                }
+                correction = correction.with(path.get(random.nextInt(path.size())));
+                assertOptimal(source, target, correction);
+            }
+        }
+    }
+
+    @Test
+    public void buildsAtMostTwoEngines() {
+        final Random random = new Random(2);
+        for (int n = 0; n < 200; n++) {
+            final int[] prefix = random.ints(random.nextInt(6), 0, 4).toArray();
+            final int[] suffix = random.ints(random.nextInt(6), 0, 4).toArray();
+            final int[] source = concat(prefix, random.ints(random.nextInt(8), 0, 4).toArray(), suffix);
+            final int[] target = concat(prefix, random.ints(random.nextInt(8), 0, 4).toArray(), suffix);
+            final AtomicInteger engines = new AtomicInteger();
+            final var differencer = new TrimmingCorrectionDifferencer<String>(source, target, (s, t) -> {
+                engines.incrementAndGet();
+                return new CorrectionDynamicProgrammingDifferencer<>(s, t);
+            });
+            // expands every successor of the first states, as the search does, including corrections in the stripped part
+            CorrectionSet correction = CorrectionSet.EMPTY;
+            for (int depth = 0; depth < 3; depth++) {
+                final List<Chunk> path = differencer.computeDiff(correction);
+                if (path.isEmpty()) {
+                    break;
+                }
+                for (final Chunk c : path) {
+                    differencer.computeDiff(correction.with(c));
+                }
+                correction = correction.with(path.get(random.nextInt(path.size())));
+            }
+            assertTrue(engines.get() + " engines", engines.get() <= 2);
+        }
+    }
+
+    static int[] concat(final int[]... parts) {
+        return Arrays.stream(parts).flatMapToInt(IntStream::of).toArray();
+    }
+}
@@ -0,0 +1,107 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class UnifiedDiffWriterTest {
+
+    static MappedText text(final String content) {
+        return new MappedText(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String diff(final String source, final String target, final int context) {
+        final MappedText sourceText = text(source);
+        final MappedText targetText = text(target);
+        final MappedText.Interner interner = new MappedText.Interner();
+        final List<Chunk> diff = new DynamicProgrammingDifferencer<String>().computeDiff(interner.intern(sourceText), interner.intern(targetText));
+        final StringWriter out = new StringWriter();
+        new UnifiedDiffWriter(out, context).write("a", "b", diff, sourceText, targetText,
+                sourceText.endsWithNewline(), targetText.endsWithNewline());
+        return out.toString();
+    }
+
+    // applies a unified diff as patch(1) does, for '\n'-terminated lines
+    static String patch(final String source, final String diff) {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < source.length(); ) {
+            final int end = source.indexOf('\n', i);
+            final int next = end < 0 ? source.length() : end + 1;
+            lines.add(source.substring(i, next));
+            i = next;
+        }
+        final StringBuilder out = new StringBuilder();
+        int next = 0;
+        char last = 0;
+        for (final String line : diff.split("\n")) {
+            // an empty diff splits into one empty line
+            if (line.isEmpty() || line.startsWith("--- ") || line.startsWith("+++ ")) {
+                continue;
+            }
+            if (line.startsWith("@@ ")) {
+                final String range = line.substring(4, line.indexOf(' ', 4));
+                final int comma = range.indexOf(',');
+                final int start = Integer.parseInt(comma < 0 ? range : range.substring(0, comma));
+                final boolean empty = comma >= 0 && range.endsWith(",0");
+                while (next < (empty ? start : start - 1)) {
+                    out.append(lines.get(next++));
+                }
+                continue;
+            }
+            switch (line.charAt(0)) {
+                case ' ' -> out.append(lines.get(next++));
+                case '-' -> next++;
+                case '+' -> out.append(line, 1, line.length()).append('\n');
+                case '\\' -> {
+                    if (last == '+') {
+                        out.setLength(out.length() - 1);
+                    }
+                }
+                default -> throw new IllegalArgumentException(line);
+            }
+            last = line.charAt(0);
+        }
+        while (next < lines.size()) {
+            out.append(lines.get(next++));
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void marksMissingNewline() {
+        assertEquals("--- a\n+++ b\n@@ -1 +1 @@\n-x\n\\ No newline at end of file\n+x\n", diff("x", "x\n", 3));
+        assertEquals("--- a\n+++ b\n@@ -1,2 +1,2 @@\n x\n-y\n+z\n\\ No newline at end of file\n", diff("x\ny\n", "x\nz", 3));
+        assertEquals("", diff("x\ny", "x\ny", 3));
+    }
+
+    @Test
+    public void roundTrips() {
+        final Random random = new Random(1);
+        final String[] words = {"a", "b", "c", ""};
+        for (int n = 0; n < 5000; n++) {
+            final String source = randomText(random, words);
+            final String target = randomText(random, words);
+            final int context = random.nextInt(4);
+            assertEquals(source + " -> " + target, target, patch(source, diff(source, target, context)));
+        }
+    }
+
+    static String randomText(final Random random, final String[] words) {
+        final StringBuilder sb = new StringBuilder();
+        final int lines = random.nextInt(8);
+        for (int i = 0; i < lines; i++) {
+            sb.append(words[random.nextInt(words.length)]);
+            if (i < lines - 1 || random.nextBoolean()) {
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
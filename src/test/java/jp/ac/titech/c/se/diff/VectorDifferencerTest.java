@@ -0,0 +1,14 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+public class VectorDifferencerTest {
+
+    @Test
+    public void loadsKernel() {
+        // the test task starts the JVM with jdk.incubator.vector; otherwise TokenDifferencerTest only covers the fallback
+        assertNotNull(VectorDifferencer.KERNEL);
+    }
+}
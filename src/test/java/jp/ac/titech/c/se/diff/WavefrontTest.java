@@ -0,0 +1,35 @@
+package jp.ac.titech.c.se.diff;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WavefrontTest {
+
+    @Test
+    public void matchesRowByRowFill() {
+        final Random random = new Random(1);
+        final int tile = Wavefront.TILE;
+        // sizes below, at and off multiples of the tile size, counting row 0 and column 0
+        final int[] lengths = {1, 37, tile - 1, tile, tile + 1, 2 * tile + 37, 3 * tile - 1};
+        for (final int m : lengths) {
+            for (final int n : lengths) {
+                final int alphabet = 2 + random.nextInt(8);
+                final int[] source = random.ints(m, 0, alphabet).toArray();
+                final int[] target = random.ints(n, 0, alphabet).toArray();
+
+                final Traceback serial = new Traceback(m + 1, n + 1);
+                new DynamicProgrammingDifferencer.Fill(source, target, serial).fill(0, 0, 1, m + 1, 1, n + 1);
+                final Traceback tiled = new Traceback(m + 1, n + 1);
+                Wavefront.fill(m + 1, n + 1, new DynamicProgrammingDifferencer.Fill(source, target, tiled));
+
+                final String message = m + " x " + n;
+                assertArrayEquals(message, serial.bits, tiled.bits);
+                assertEquals(message, serial.findPath(), tiled.findPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package jp.ac.titech.c.se.diff;
+
+import java.util.List;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The cost recurrence of {@link DynamicProgrammingDifferencer}, one anti-diagonal at a time.
+ * The cells of an anti-diagonal only depend on the two previous ones, so they are computed in vector lanes.
+ * Costs are kept for three anti-diagonals, indexed by the source position i; the target is read reversed,
+ * so that the lines compared along an anti-diagonal are contiguous in both arrays.
+ * <p>
+ * The traceback is stored as two bit planes per anti-diagonal, each a whole number of words: whether the
+ * minimum came from the horizontal move, and whether it came from the vertical one. Lane groups start at
+ * multiples of the lane count from the start of the anti-diagonal, so the mask bits of a group never cross a word.
+ * This is the only class that refers to jdk.incubator.vector. It is compiled apart from main, and
+ * {@link VectorDifferencer} loads {@link Engine} by name only when the module is present.
+ */
+final class VectorKernel {
+    static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    static final class Engine implements TokenDifferencer {
+        @Override
+        public List<Chunk> computeDiff(final int[] source, final int[] target) {
+            return new VectorKernel(source, target).computeDiff();
+        }
+    }
+
+    final int[] source, reversedTarget;
+    final int rows, columns;
+    // word offsets of the interior cells (1 <= i <= N, 1 <= j <= M) of each anti-diagonal d = i + j
+    final long[] offsets;
+    final long[] horizontal, vertical;
+
+    VectorKernel(final int[] source, final int[] target) {
+        this.source = source;
+        this.rows = source.length + 1;
+        this.columns = target.length + 1;
+        reversedTarget = new int[target.length];
+        for (int k = 0; k < target.length; k++) {
+            reversedTarget[k] = target[target.length - 1 - k];
+        }
+        offsets = new long[rows + columns];
+        for (int d = 2; d < rows + columns - 1; d++) {
+            offsets[d + 1] = offsets[d] + (last(d) - first(d) + 64) / 64;
+        }
+        final int words = Math.toIntExact(offsets[rows + columns - 1]);
+        horizontal = new long[words];
+        vertical = new long[words];
+    }
+
+    // the interior cells of anti-diagonal d have first(d) <= i <= last(d)
+    private int first(final int d) {
+        return Math.max(1, d - (columns - 1));
+    }
+
+    private int last(final int d) {
+        return Math.min(rows - 1, d - 1);
+    }
+
+    List<Chunk> computeDiff() {
+        fill();
+        return Traceback.findPath(rows, columns, this::from, 0, 0);
+    }
+
+    private void fill() {
+        final int m = columns - 1;
+        int[] prev2 = new int[rows];
+        int[] prev1 = new int[rows];
+        int[] cur = new int[rows];
+        // anti-diagonals 0 and 1 are all border cells
+        prev1[0] = 1;
+        if (rows > 1) {
+            prev1[1] = 1;
+        }
+        for (int d = 2; d < rows + columns - 1; d++) {
+            final int lo = first(d);
+            final int hi = last(d);
+            final int word = (int) offsets[d];
+            final int t = m - d;
+            int i = lo;
+            for (; i + LANES - 1 <= hi; i += LANES) {
+                final IntVector up = IntVector.fromArray(SPECIES, prev1, i - 1).add(1);
+                final IntVector left = IntVector.fromArray(SPECIES, prev1, i).add(1);
+                final VectorMask<Integer> equal = IntVector.fromArray(SPECIES, source, i - 1)
+                        .compare(VectorOperators.EQ, IntVector.fromArray(SPECIES, reversedTarget, t + i));
+                final IntVector diagonal = IntVector.fromArray(SPECIES, prev2, i - 1).add(100).sub(100, equal);
+                final IntVector min = diagonal.min(left.min(up));
+                min.intoArray(cur, i);
+                final int k = i - lo;
+                horizontal[word + k / 64] |= min.compare(VectorOperators.EQ, left).toLong() << (k % 64);
+                vertical[word + k / 64] |= min.compare(VectorOperators.EQ, up).toLong() << (k % 64);
+            }
+            for (; i <= hi; i++) {
+                final int up = prev1[i - 1] + 1;
+                final int left = prev1[i] + 1;
+                final int diagonal = prev2[i - 1] + (source[i - 1] == reversedTarget[t + i] ? 0 : 100);
+                final int min = Math.min(diagonal, Math.min(left, up));
+                cur[i] = min;
+                final int k = i - lo;
+                if (min == left) {
+                    horizontal[word + k / 64] |= 1L << k;
+                }
+                if (min == up) {
+                    vertical[word + k / 64] |= 1L << k;
+                }
+            }
+            // border cells: (0, d) and (d, 0)
+            if (d <= m) {
+                cur[0] = d;
+            }
+            if (d < rows) {
+                cur[d] = d;
+            }
+            final int[] tmp = prev2;
+            prev2 = prev1;
+            prev1 = cur;
+            cur = tmp;
+        }
+    }
+
+    // the traceback direction of cell (i, j), with the priorities of DynamicProgrammingDifferencer.from
+    private int from(final int i, final int j) {
+        if (i == 0) {
+            return Traceback.FROM_HORIZONTAL;
+        }
+        if (j == 0) {
+            return Traceback.FROM_VERTICAL;
+        }
+        final int d = i + j;
+        final int k = i - first(d);
+        final int word = (int) offsets[d] + k / 64;
+        if ((horizontal[word] & (1L << k)) != 0) {
+            return Traceback.FROM_HORIZONTAL;
+        }
+        if ((vertical[word] & (1L << k)) != 0) {
+            return Traceback.FROM_VERTICAL;
+        }
+        return Traceback.FROM_DIAGONAL;
+    }
+}